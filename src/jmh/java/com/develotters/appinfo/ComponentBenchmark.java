@@ -0,0 +1,49 @@
+package com.develotters.appinfo;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of collecting a single component, caching is turned off so every call collects the volatile properties,
+ * the static properties are collected only once as in production.
+ *
+ * @author Jonatan Ivanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComponentBenchmark {
+    @Param
+    public AppInfoComponent component;
+
+    private AppInfo appInfo;
+
+    @Setup
+    public void setUp() {
+        appInfo = AppInfo.builder()
+            .components(component)
+            .ttl(component, Duration.ZERO)
+            .build();
+    }
+
+    @Benchmark
+    public Map<String, PropertyValue> collect() {
+        return appInfo.getValues();
+    }
+}
@@ -0,0 +1,65 @@
+package com.develotters.appinfo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Unfiltered vs. filtered {@link AppInfo#prettyPrint()} with the default components and caching,
+ * {@code keyCount=0} means no filtering, keys over the first five don't match anything so they only add to the cost of matching.
+ *
+ * @author Jonatan Ivanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrettyPrintBenchmark {
+    private static final List<String> KEYS = List.of("java.", "os.", "memory.heap", "gc.", "thread.threadCount");
+
+    @Param({ "0", "1", "5", "50" })
+    public int keyCount;
+
+    private final AppInfo appInfo = new AppInfo();
+    private final OutputStream out = OutputStream.nullOutputStream();
+    private List<String> keys;
+
+    @Setup
+    public void setUp() {
+        keys = Stream.concat(KEYS.stream(), IntStream.range(0, keyCount).mapToObj(i -> "nonExistentKey" + i))
+            .limit(keyCount)
+            .toList();
+    }
+
+    @Benchmark
+    public String prettyPrint() {
+        return keys.isEmpty() ? appInfo.prettyPrint() : appInfo.prettyPrint(keys);
+    }
+
+    @Benchmark
+    public void streamingPrettyPrint() throws IOException {
+        if (keys.isEmpty()) {
+            appInfo.prettyPrint(out);
+        }
+        else {
+            appInfo.prettyPrint(keys, out);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.develotters.appinfo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of collecting the {@link AppInfoComponent#THREAD} component with a given number of extra (parked) platform threads.
+ *
+ * @author Jonatan Ivanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadCollectionBenchmark {
+    @Param({ "100", "1000", "5000" })
+    public int threadCount;
+
+    @Param({ "0", "8" })
+    public int threadStackDepth;
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final List<Thread> threads = new ArrayList<>();
+    private AppInfo appInfo;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(Thread.ofPlatform().name("benchmark-", i).daemon().start(this::await));
+        }
+        appInfo = AppInfo.builder()
+            .components(AppInfoComponent.THREAD)
+            .ttl(AppInfoComponent.THREAD, Duration.ZERO)
+            .threadStackDepth(threadStackDepth)
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Benchmark
+    public Map<String, PropertyValue> collect() {
+        return appInfo.getValues();
+    }
+
+    private void await() {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.develotters.appinfo.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.concurrent.TimeUnit;
+
+import com.develotters.appinfo.AppInfo;
+import com.develotters.appinfo.format.TextFormat;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput and latency of {@link SimpleHttpServer} serving the default components in-process,
+ * the number of concurrent clients can be changed with {@code -t}.
+ *
+ * @author Jonatan Ivanov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class HttpServerBenchmark {
+    private final AppInfo appInfo = new AppInfo();
+    private HttpServer httpServer;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        new SimpleHttpServer(httpServer, () -> out -> TextFormat.write(appInfo.getValues(), out)).start();
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + httpServer.getAddress().getPort() + "/")).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        httpServer.stop(0);
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> request() throws IOException, InterruptedException {
+        return client.send(request, BodyHandlers.ofByteArray());
+    }
+}
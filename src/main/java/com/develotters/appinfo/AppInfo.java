@@ -1,5 +1,7 @@
 package com.develotters.appinfo;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.management.ClassLoadingMXBean;
 import java.lang.management.CompilationMXBean;
 import java.lang.management.GarbageCollectorMXBean;
@@ -9,35 +11,66 @@ import java.lang.management.MemoryManagerMXBean;
 import java.lang.management.MemoryPoolMXBean;
 import java.lang.management.OperatingSystemMXBean;
 import java.lang.management.RuntimeMXBean;
+import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.function.BinaryOperator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import com.develotters.appinfo.format.TextFormat;
+
 import static com.develotters.appinfo.AppInfoComponent.*;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Collectors.toCollection;
 
 /**
  * @author Jonatan Ivanov
  */
 public class AppInfo {
+    private static final Executor COLLECTOR_EXECUTOR = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("app-info-collector-", 0).factory());
+
     private final Set<AppInfoComponent> components;
+    private final Map<AppInfoComponent, Duration> ttls;
+    private final int threadStackDepth;
+    private final Map<AppInfoComponent, Map<String, PropertyValue>> staticSnapshots = new ConcurrentHashMap<>();
+    private final Map<AppInfoComponent, Snapshot> volatileSnapshots = new ConcurrentHashMap<>();
+    private final Map<AppInfoComponent, Duration> timeouts;
+    private final Duration defaultTimeout;
+    private final Map<AppInfoComponent, CompletableFuture<Map<String, PropertyValue>>> inFlightCollections = new ConcurrentHashMap<>();
+    private final RateCalculator rateCalculator = new RateCalculator();
+    private final TopThreadsCalculator topThreadsCalculator;
+    private final Instrumentation instrumentation = new Instrumentation();
+    private final Map<AppInfoComponent, Instrumentation.Timer> collectionTimers = new EnumMap<>(AppInfoComponent.class);
+    private volatile KeyMatcher lastKeyMatcher;
 
     public AppInfo() {
-        this(ALL);
+        this(DEFAULTS);
     }
 
     public AppInfo(AppInfoComponent... components) {
@@ -45,11 +78,44 @@ public class AppInfo {
     }
 
     public AppInfo(Iterable<AppInfoComponent> components) {
-        this.components = StreamSupport.stream(components.spliterator(), false).collect(toSet());
+        this(builder().components(components));
+    }
+
+    private AppInfo(Builder builder) {
+        this.components = StreamSupport.stream(builder.components.spliterator(), false)
+            .collect(toCollection(() -> EnumSet.noneOf(AppInfoComponent.class)));
+        this.ttls = new EnumMap<>(builder.ttls);
+        this.threadStackDepth = builder.threadStackDepth;
+        this.timeouts = new EnumMap<>(builder.timeouts);
+        this.defaultTimeout = builder.defaultTimeout;
+        this.topThreadsCalculator = new TopThreadsCalculator(builder.topThreadCount);
+        if (this.components.contains(GC_PAUSE)) {
+            GcPauseRecorder.getInstance();
+        }
+        if (this.components.contains(JFR)) {
+            JfrRecorder.getInstance();
+        }
+        if (this.components.contains(INSTRUMENTATION)) {
+            for (AppInfoComponent component : this.components) {
+                collectionTimers.put(component, instrumentation.timer("collection." + component));
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The timers of this instance, they are reported by the {@link AppInfoComponent#INSTRUMENTATION} component.
+     * Other parts of the application (e.g.: the HTTP server) can register their own timers.
+     */
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
     }
 
     public Map<String, String> getProperties() {
-        return Collections.unmodifiableMap(collectProperties());
+        return new StringValuesView(getValues());
     }
 
     public Map<String, String> getProperties(String... keys) {
@@ -57,15 +123,50 @@ public class AppInfo {
     }
 
     public Map<String, String> getProperties(List<String> keys) {
-        return Collections.unmodifiableMap(
-            collectProperties().entrySet().stream()
-                .filter(entry -> keys.stream().anyMatch(key -> entry.getKey().toLowerCase().contains(key.toLowerCase())))
-                .collect(ENTRY_COLLECTOR)
-        );
+        return new StringValuesView(getValues(keys));
+    }
+
+    /**
+     * Same as {@link #getProperties()} but the values are not converted to {@link String}.
+     */
+    public Map<String, PropertyValue> getValues() {
+        return Collections.unmodifiableMap(collectProperties(components, null, threadStackDepth));
+    }
+
+    public Map<String, PropertyValue> getValues(String... keys) {
+        return getValues(Arrays.asList(keys));
+    }
+
+    public Map<String, PropertyValue> getValues(List<String> keys) {
+        return Collections.unmodifiableMap(collectProperties(components, getKeyMatcher(keys), threadStackDepth));
+    }
+
+    /**
+     * Collects only the given components, the rest of them are not collected at all.
+     *
+     * @param components the components to collect, the ones this instance was not built with are ignored
+     * @param keys same as {@link #getValues(List)}, empty means all the properties of the components
+     * @param threadStackDepth the maximum number of stack frames collected for each thread for this call only,
+     * thread info collected with a depth that is different from {@link Builder#threadStackDepth(int)} is not cached
+     */
+    public Map<String, PropertyValue> getValues(Set<AppInfoComponent> components, List<String> keys, int threadStackDepth) {
+        if (threadStackDepth < 0) {
+            throw new IllegalArgumentException(format("Thread stack depth must not be negative: %d", threadStackDepth));
+        }
+        KeyMatcher keyMatcher = keys.isEmpty() ? null : getKeyMatcher(keys);
+        return Collections.unmodifiableMap(collectProperties(components, keyMatcher, threadStackDepth));
+    }
+
+    public Set<AppInfoComponent> getComponents() {
+        return Collections.unmodifiableSet(components);
+    }
+
+    public int getThreadStackDepth() {
+        return threadStackDepth;
     }
 
     public String prettyPrint() {
-        return prettyPrint(getProperties());
+        return prettyPrint(getValues());
     }
 
     public String prettyPrint(String... keys) {
@@ -73,244 +174,614 @@ public class AppInfo {
     }
 
     public String prettyPrint(List<String> keys) {
-        return prettyPrint(getProperties(keys));
+        return prettyPrint(getValues(keys));
+    }
+
+    /**
+     * Writes the same content as {@link #prettyPrint()} without building it in memory first.
+     */
+    public void prettyPrint(OutputStream out) throws IOException {
+        TextFormat.write(getValues(), out);
+    }
+
+    /**
+     * Writes the same content as {@link #prettyPrint(List)} without building it in memory first.
+     */
+    public void prettyPrint(List<String> keys, OutputStream out) throws IOException {
+        TextFormat.write(getValues(keys), out);
     }
 
-    private String prettyPrint(Map<String, String> properties) {
-        return properties.entrySet().stream()
-            .map(entry -> format("%s: %s", entry.getKey(), entry.getValue()))
+    private String prettyPrint(Map<String, PropertyValue> values) {
+        return values.entrySet().stream()
+            .map(entry -> entry.getKey() + ": " + entry.getValue().asString())
             .collect(joining("\n"));
     }
 
-    private Map<String, String> collectProperties() {
-        Map<Object, Object> props = new TreeMap<>();
+    private KeyMatcher getKeyMatcher(List<String> keys) {
+        KeyMatcher keyMatcher = lastKeyMatcher;
+        if (keyMatcher == null || !keyMatcher.getKeys().equals(keys)) {
+            keyMatcher = KeyMatcher.compile(keys);
+            lastKeyMatcher = keyMatcher;
+        }
+
+        return keyMatcher;
+    }
 
-        if (components.contains(SYSTEM_PROPERTIES)) {
-            safelyRun(() -> addSystemProperties(props));
+    /**
+     * Collects the components concurrently, components that fail or don't finish within their timeout are marked
+     * with an {@code appInfo.<COMPONENT>.error} or {@code appInfo.<COMPONENT>.timedOut} property.
+     *
+     * @param requested the components to collect, the ones this instance was not built with are ignored
+     * @param keyMatcher only the matching properties are collected, null means all of them
+     */
+    private Map<String, PropertyValue> collectProperties(Set<AppInfoComponent> requested, KeyMatcher keyMatcher, int threadStackDepth) {
+        long start = System.nanoTime();
+        Map<AppInfoComponent, Future<Map<String, PropertyValue>>> futures = new EnumMap<>(AppInfoComponent.class);
+        for (AppInfoComponent component : components) {
+            if (requested.contains(component) && (keyMatcher == null || keyMatcher.mayMatch(component))) {
+                futures.put(component, collectAsync(component, threadStackDepth));
+            }
         }
-        if (components.contains(ENVIRONMENT_VARIABLES)) {
-            safelyRun(() -> props.putAll(System.getenv()));
+
+        Map<String, PropertyValue> props = new TreeMap<>();
+        for (Entry<AppInfoComponent, Future<Map<String, PropertyValue>>> entry : futures.entrySet()) {
+            AppInfoComponent component = entry.getKey();
+            long timeoutNanos = timeouts.getOrDefault(component, defaultTimeout).toNanos();
+            try {
+                Map<String, PropertyValue> componentProps = entry.getValue().get(Math.max(0, start + timeoutNanos - System.nanoTime()), NANOSECONDS);
+                if (keyMatcher == null) {
+                    props.putAll(componentProps);
+                }
+                else {
+                    putMatching(componentProps, keyMatcher, props);
+                }
+            }
+            catch (TimeoutException exception) {
+                recordError(component, exception);
+                props.put("appInfo." + component + ".timedOut", PropertyValue.TRUE);
+            }
+            catch (ExecutionException exception) {
+                props.put("appInfo." + component + ".error", PropertyValue.of(String.valueOf(exception.getCause())));
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                props.put("appInfo." + component + ".error", PropertyValue.of(String.valueOf(exception)));
+            }
         }
-        if (components.contains(RUNTIME)) {
-            safelyRun(() -> addRuntimeInfo(props));
+
+        return props;
+    }
+
+    /**
+     * Collections that are in progress are shared so a collector that hangs does not pile up threads.
+     * Thread info with a stack depth that is different from the configured one is neither cached nor shared.
+     */
+    private Future<Map<String, PropertyValue>> collectAsync(AppInfoComponent component, int threadStackDepth) {
+        if (component == THREAD && threadStackDepth != this.threadStackDepth) {
+            CompletableFuture<Map<String, PropertyValue>> future = new CompletableFuture<>();
+            COLLECTOR_EXECUTOR.execute(() -> complete(future, component, () -> collectThreadInfo(threadStackDepth)));
+            return future;
         }
-        if (components.contains(CLASS_LOADING)) {
-            safelyRun(() -> addClassLoadingInfo(props));
+
+        CompletableFuture<Map<String, PropertyValue>> inFlight = inFlightCollections.get(component);
+        if (inFlight != null) {
+            return inFlight;
         }
-        if (components.contains(COMPILATION)) {
-            safelyRun(() -> addCompilationInfo(props));
+
+        CompletableFuture<Map<String, PropertyValue>> future = new CompletableFuture<>();
+        inFlight = inFlightCollections.putIfAbsent(component, future);
+        if (inFlight != null) {
+            return inFlight;
         }
-        if (components.contains(GARBAGE_COLLECTOR)) {
-            safelyRun(() -> addGcInfo(props));
+
+        COLLECTOR_EXECUTOR.execute(() -> {
+            try {
+                complete(future, component, () -> collect(component));
+            }
+            finally {
+                inFlightCollections.remove(component, future);
+            }
+        });
+
+        return future;
+    }
+
+    private void complete(CompletableFuture<Map<String, PropertyValue>> future, AppInfoComponent component, Supplier<Map<String, PropertyValue>> collector) {
+        try {
+            future.complete(collect(collectionTimers.get(component), collector));
+        }
+        catch (Throwable throwable) {
+            recordError(component, throwable);
+            future.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * @param timer records the time of the collection and the errors that are swallowed during the collection, can be null
+     */
+    private Map<String, PropertyValue> collect(Instrumentation.Timer timer, Supplier<Map<String, PropertyValue>> collector) {
+        if (timer == null) {
+            return collector.get();
+        }
+
+        long start = System.nanoTime();
+        try {
+            return Instrumentation.callWith(timer, collector);
+        }
+        finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    private Map<String, PropertyValue> collect(AppInfoComponent component) {
+        Map<String, PropertyValue> props = new TreeMap<>(getStaticProperties(component));
+        props.putAll(getVolatileProperties(component));
+        return props;
+    }
+
+    private Map<String, PropertyValue> collectThreadInfo(int threadStackDepth) {
+        Map<String, PropertyValue> props = new TreeMap<>(getStaticProperties(THREAD));
+        addThreadInfo(props, threadStackDepth);
+        return props;
+    }
+
+    private void recordError(AppInfoComponent component, Throwable throwable) {
+        Instrumentation.Timer timer = collectionTimers.get(component);
+        if (timer != null) {
+            timer.recordError(throwable);
+        }
+    }
+
+    private void putMatching(Map<String, PropertyValue> source, KeyMatcher keyMatcher, Map<String, PropertyValue> target) {
+        for (Entry<String, PropertyValue> entry : source.entrySet()) {
+            if (keyMatcher.matches(entry.getKey())) {
+                target.put(entry.getKey(), entry.getValue());
+            }
         }
-        if (components.contains(MEMORY)) {
-            safelyRun(() -> addMemoryInfo(props));
+    }
+
+    private Map<String, PropertyValue> getStaticProperties(AppInfoComponent component) {
+        return staticSnapshots.computeIfAbsent(component, this::collectStaticProperties);
+    }
+
+    private Map<String, PropertyValue> getVolatileProperties(AppInfoComponent component) {
+        long ttlNanos = ttls.getOrDefault(component, component.getDefaultTtl()).toNanos();
+        if (ttlNanos <= 0) {
+            return collectVolatileProperties(component);
+        }
+
+        long now = System.nanoTime();
+        Snapshot snapshot = volatileSnapshots.get(component);
+        if (snapshot == null || now - snapshot.collectedAt() >= ttlNanos) {
+            snapshot = new Snapshot(collectVolatileProperties(component), now);
+            volatileSnapshots.put(component, snapshot);
         }
-        if (components.contains(OPERATING_SYSTEM)) {
-            safelyRun(() -> addOsInfo(props));
+
+        return snapshot.properties();
+    }
+
+    private Map<String, PropertyValue> collectStaticProperties(AppInfoComponent component) {
+        Map<String, PropertyValue> props = new TreeMap<>();
+        switch (component) {
+            case SYSTEM_PROPERTIES -> addStaticSystemProperties(props);
+            case ENVIRONMENT_VARIABLES -> System.getenv().forEach((key, value) -> props.put(key, PropertyValue.of(value)));
+            case RUNTIME -> addStaticRuntimeInfo(props);
+            case COMPILATION -> addStaticCompilationInfo(props);
+            case GARBAGE_COLLECTOR -> addStaticGcInfo(props);
+            case MEMORY -> addStaticMemoryInfo(props);
+            case OPERATING_SYSTEM -> addStaticOsInfo(props);
+            case THREAD -> addStaticThreadInfo(props);
+            default -> {}
         }
-        if (components.contains(THREAD)) {
-            safelyRun(() -> addThreadInfo(props));
+
+        return Collections.unmodifiableMap(props);
+    }
+
+    private Map<String, PropertyValue> collectVolatileProperties(AppInfoComponent component) {
+        Map<String, PropertyValue> props = new TreeMap<>();
+        switch (component) {
+            case SYSTEM_PROPERTIES -> addSystemProperties(props);
+            case RUNTIME -> addRuntimeInfo(props);
+            case CLASS_LOADING -> addClassLoadingInfo(props);
+            case COMPILATION -> addCompilationInfo(props);
+            case GARBAGE_COLLECTOR -> addGcInfo(props);
+            case MEMORY -> addMemoryInfo(props);
+            case NATIVE_MEMORY -> NativeMemoryReader.getInstance().addProperties(props);
+            case HEAP_HISTOGRAM -> HeapHistogramCollector.getInstance().addProperties(props);
+            case OPERATING_SYSTEM -> addOsInfo(props);
+            case THREAD -> addThreadInfo(props, threadStackDepth);
+            case GC_PAUSE -> GcPauseRecorder.getInstance().addProperties(props);
+            case RATE -> rateCalculator.addRates(props);
+            case TOP_THREADS -> topThreadsCalculator.addTopThreads(props);
+            case INSTRUMENTATION -> instrumentation.addProperties(props);
+            case JFR -> JfrRecorder.getInstance().addProperties(props);
+            default -> {}
         }
 
-        return props.entrySet().stream().collect(ENTRY_TO_STRING_COLLECTOR);
+        return Collections.unmodifiableMap(props);
+    }
+
+    /**
+     * Only the properties of the JVM and the OS are static, the application can set and change the rest of them.
+     */
+    private void addStaticSystemProperties(Map<String, PropertyValue> props) {
+        System.getProperties().forEach((key, value) -> {
+            if (isStaticSystemProperty(String.valueOf(key))) {
+                props.put(String.valueOf(key), PropertyValue.of(value));
+            }
+        });
+    }
+
+    private void addSystemProperties(Map<String, PropertyValue> props) {
+        System.getProperties().forEach((key, value) -> {
+            if (!isStaticSystemProperty(String.valueOf(key))) {
+                props.put(String.valueOf(key), PropertyValue.of(value));
+            }
+        });
+        props.put("system.nanoTime", PropertyValue.of(System.nanoTime()));
+        props.put("system.currentTimeMillis", PropertyValue.of(System.currentTimeMillis()));
+        props.put("system.date", PropertyValue.of(new Date()));
+        props.put("system.instant", PropertyValue.of(Instant.now()));
+    }
+
+    private static boolean isStaticSystemProperty(String key) {
+        return key.startsWith("java.") || key.startsWith("os.");
     }
 
-    private void addSystemProperties(Map<Object, Object> props) {
-        props.putAll(System.getProperties());
-        props.put("system.nanoTime", System.nanoTime());
-        props.put("system.currentTimeMillis", System.currentTimeMillis());
-        props.put("system.date", new Date());
-        props.put("system.instant", Instant.now());
+    private void addStaticRuntimeInfo(Map<String, PropertyValue> props) {
+        RuntimeMXBean runtimeMXBean = ManagementFactory.getRuntimeMXBean();
+        props.put("runtime.classPath", PropertyValue.of(safelyGet(runtimeMXBean::getClassPath)));
+        props.put("runtime.inputArguments", PropertyValue.of(safelyGet(runtimeMXBean::getInputArguments)));
+        props.put("runtime.libraryPath", PropertyValue.of(safelyGet(runtimeMXBean::getLibraryPath)));
+        props.put("runtime.managementSpecVersion", PropertyValue.of(safelyGet(runtimeMXBean::getManagementSpecVersion)));
+        props.put("runtime.name", PropertyValue.of(safelyGet(runtimeMXBean::getName)));
+        props.put("runtime.specName", PropertyValue.of(safelyGet(runtimeMXBean::getSpecName)));
+        props.put("runtime.specVendor", PropertyValue.of(safelyGet(runtimeMXBean::getSpecVendor)));
+        props.put("runtime.specVersion", PropertyValue.of(safelyGet(runtimeMXBean::getSpecVersion)));
+        props.put("runtime.startTime", safelyGetLong(runtimeMXBean::getStartTime));
+        props.put("runtime.vmName", PropertyValue.of(safelyGet(runtimeMXBean::getVmName)));
+        props.put("runtime.vmVendor", PropertyValue.of(safelyGet(runtimeMXBean::getVmVendor)));
+        props.put("runtime.vmVersion", PropertyValue.of(safelyGet(runtimeMXBean::getVmVersion)));
     }
 
-    private void addRuntimeInfo(Map<Object, Object> props) {
+    private void addRuntimeInfo(Map<String, PropertyValue> props) {
         Runtime runtime = Runtime.getRuntime();
-        props.put("runtime.availableProcessors", safelyGet(runtime::availableProcessors));
-        props.put("runtime.freeMemory", safelyGet(runtime::freeMemory));
-        props.put("runtime.maxMemory", safelyGet(runtime::maxMemory));
-        props.put("runtime.totalMemory", safelyGet(runtime::totalMemory));
+        props.put("runtime.availableProcessors", safelyGetLong(runtime::availableProcessors));
+        props.put("runtime.freeMemory", safelyGetLong(runtime::freeMemory));
+        props.put("runtime.maxMemory", safelyGetLong(runtime::maxMemory));
+        props.put("runtime.totalMemory", safelyGetLong(runtime::totalMemory));
 
         RuntimeMXBean runtimeMXBean = ManagementFactory.getRuntimeMXBean();
-        props.put("runtime.classPath", safelyGet(runtimeMXBean::getClassPath));
-        props.put("runtime.inputArguments", safelyGet(runtimeMXBean::getInputArguments));
-        props.put("runtime.libraryPath", safelyGet(runtimeMXBean::getLibraryPath));
-        props.put("runtime.managementSpecVersion", safelyGet(runtimeMXBean::getManagementSpecVersion));
-        props.put("runtime.name", safelyGet(runtimeMXBean::getName));
-        props.put("runtime.specName", safelyGet(runtimeMXBean::getSpecName));
-        props.put("runtime.specVendor", safelyGet(runtimeMXBean::getSpecVendor));
-        props.put("runtime.specVersion", safelyGet(runtimeMXBean::getSpecVersion));
-        props.put("runtime.startTime", safelyGet(runtimeMXBean::getStartTime));
-        props.put("runtime.uptime", safelyGet(runtimeMXBean::getUptime));
-        props.put("runtime.vmName", safelyGet(runtimeMXBean::getVmName));
-        props.put("runtime.vmVendor", safelyGet(runtimeMXBean::getVmVendor));
-        props.put("runtime.vmVersion", safelyGet(runtimeMXBean::getVmVersion));
-    }
-
-    private void addClassLoadingInfo(Map<Object, Object> props) {
+        props.put("runtime.uptime", safelyGetLong(runtimeMXBean::getUptime));
+    }
+
+    private void addClassLoadingInfo(Map<String, PropertyValue> props) {
         ClassLoadingMXBean classLoadingMXBean = ManagementFactory.getClassLoadingMXBean();
-        props.put("classLoading.loadedClassCount", safelyGet(classLoadingMXBean::getLoadedClassCount));
-        props.put("classLoading.totalLoadedClassCount", safelyGet(classLoadingMXBean::getTotalLoadedClassCount));
-        props.put("classLoading.unloadedClassCount", safelyGet(classLoadingMXBean::getUnloadedClassCount));
+        props.put("classLoading.loadedClassCount", safelyGetLong(classLoadingMXBean::getLoadedClassCount));
+        props.put("classLoading.totalLoadedClassCount", safelyGetLong(classLoadingMXBean::getTotalLoadedClassCount));
+        props.put("classLoading.unloadedClassCount", safelyGetLong(classLoadingMXBean::getUnloadedClassCount));
+    }
+
+    private void addStaticCompilationInfo(Map<String, PropertyValue> props) {
+        CompilationMXBean compilationMXBean = ManagementFactory.getCompilationMXBean();
+        props.put("compilation.name", PropertyValue.of(safelyGet(compilationMXBean::getName)));
     }
 
-    private void addCompilationInfo(Map<Object, Object> props) {
+    private void addCompilationInfo(Map<String, PropertyValue> props) {
         CompilationMXBean compilationMXBean = ManagementFactory.getCompilationMXBean();
-        props.put("compilation.name", safelyGet(compilationMXBean::getName));
-        props.put("compilation.totalCompilationTime", safelyGet(compilationMXBean::getTotalCompilationTime));
+        props.put("compilation.totalCompilationTime", safelyGetLong(compilationMXBean::getTotalCompilationTime));
     }
 
-    private void addGcInfo(Map<Object, Object> props) {
+    private void addStaticGcInfo(Map<String, PropertyValue> props) {
         List<GarbageCollectorMXBean> gcMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
         for (int i = 0; i < gcMXBeans.size(); i++) {
             GarbageCollectorMXBean gcMXBean = gcMXBeans.get(i);
-            props.put("gc." + i + ".name", safelyGet(gcMXBean::getName));
-            props.put("gc." + i + ".objectName", safelyGet(gcMXBean::getObjectName));
-            props.put("gc." + i + ".collectionCount", safelyGet(gcMXBean::getCollectionCount));
-            props.put("gc." + i + ".collectionTime", safelyGet(gcMXBean::getCollectionTime));
-            props.put("gc." + i + ".memoryPoolNames", Arrays.toString(safelyGet(gcMXBean::getMemoryPoolNames)));
+            props.put("gc." + i + ".name", PropertyValue.of(safelyGet(gcMXBean::getName)));
+            props.put("gc." + i + ".objectName", PropertyValue.of(safelyGet(gcMXBean::getObjectName)));
+            props.put("gc." + i + ".memoryPoolNames", PropertyValue.of(safelyGet(gcMXBean::getMemoryPoolNames)));
         }
     }
 
-    private void addMemoryInfo(Map<Object, Object> props) {
+    private void addGcInfo(Map<String, PropertyValue> props) {
+        List<GarbageCollectorMXBean> gcMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        for (int i = 0; i < gcMXBeans.size(); i++) {
+            GarbageCollectorMXBean gcMXBean = gcMXBeans.get(i);
+            props.put("gc." + i + ".collectionCount", safelyGetLong(gcMXBean::getCollectionCount));
+            props.put("gc." + i + ".collectionTime", safelyGetLong(gcMXBean::getCollectionTime));
+        }
+    }
+
+    private void addStaticMemoryInfo(Map<String, PropertyValue> props) {
         List<MemoryManagerMXBean> memoryManagerMXBeans = ManagementFactory.getMemoryManagerMXBeans();
         for (int i = 0; i < memoryManagerMXBeans.size(); i++) {
             MemoryManagerMXBean memoryManagerMXBean = memoryManagerMXBeans.get(i);
-            props.put("memoryManager." + i + ".name", safelyGet(memoryManagerMXBean::getName));
-            props.put("memoryManager." + i + ".objectName", safelyGet(memoryManagerMXBean::getObjectName));
-            props.put("memoryManager." + i + ".memoryPoolNames", Arrays.toString(safelyGet(memoryManagerMXBean::getMemoryPoolNames)));
+            props.put("memoryManager." + i + ".name", PropertyValue.of(safelyGet(memoryManagerMXBean::getName)));
+            props.put("memoryManager." + i + ".objectName", PropertyValue.of(safelyGet(memoryManagerMXBean::getObjectName)));
+            props.put("memoryManager." + i + ".memoryPoolNames", PropertyValue.of(safelyGet(memoryManagerMXBean::getMemoryPoolNames)));
         }
 
+        List<MemoryPoolMXBean> memoryPoolMXBeans = ManagementFactory.getMemoryPoolMXBeans();
+        for (int i = 0; i < memoryPoolMXBeans.size(); i++) {
+            MemoryPoolMXBean memoryPoolMXBean = memoryPoolMXBeans.get(i);
+            props.put("memoryPool." + i + ".name", PropertyValue.of(safelyGet(memoryPoolMXBean::getName)));
+            props.put("memoryPool." + i + ".type", PropertyValue.of(safelyGet(memoryPoolMXBean::getType)));
+            props.put("memoryPool." + i + ".memoryManagerNames", PropertyValue.of(safelyGet(memoryPoolMXBean::getMemoryManagerNames)));
+            props.put("memoryPool." + i + ".collectionUsageThresholdSupported", PropertyValue.of(memoryPoolMXBean.isCollectionUsageThresholdSupported()));
+            props.put("memoryPool." + i + ".usageThresholdSupported", PropertyValue.of(memoryPoolMXBean.isUsageThresholdSupported()));
+        }
+    }
+
+    private void addMemoryInfo(Map<String, PropertyValue> props) {
         MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
-        props.put("memory.heapMemoryUsage.init", safelyGet(() -> memoryMXBean.getHeapMemoryUsage().getInit()));
-        props.put("memory.heapMemoryUsage.used", safelyGet(() -> memoryMXBean.getHeapMemoryUsage().getUsed()));
-        props.put("memory.heapMemoryUsage.committed", safelyGet(() -> memoryMXBean.getHeapMemoryUsage().getCommitted()));
-        props.put("memory.heapMemoryUsage.max", safelyGet(() -> memoryMXBean.getHeapMemoryUsage().getMax()));
-        props.put("memory.nonHeapMemoryUsage.init", safelyGet(() -> memoryMXBean.getNonHeapMemoryUsage().getInit()));
-        props.put("memory.nonHeapMemoryUsage.used", safelyGet(() -> memoryMXBean.getNonHeapMemoryUsage().getUsed()));
-        props.put("memory.nonHeapMemoryUsage.committed", safelyGet(() -> memoryMXBean.getNonHeapMemoryUsage().getCommitted()));
-        props.put("memory.nonHeapMemoryUsage.max", safelyGet(() -> memoryMXBean.getNonHeapMemoryUsage().getMax()));
+        props.put("memory.heapMemoryUsage.init", safelyGetLong(() -> memoryMXBean.getHeapMemoryUsage().getInit()));
+        props.put("memory.heapMemoryUsage.used", safelyGetLong(() -> memoryMXBean.getHeapMemoryUsage().getUsed()));
+        props.put("memory.heapMemoryUsage.committed", safelyGetLong(() -> memoryMXBean.getHeapMemoryUsage().getCommitted()));
+        props.put("memory.heapMemoryUsage.max", safelyGetLong(() -> memoryMXBean.getHeapMemoryUsage().getMax()));
+        props.put("memory.nonHeapMemoryUsage.init", safelyGetLong(() -> memoryMXBean.getNonHeapMemoryUsage().getInit()));
+        props.put("memory.nonHeapMemoryUsage.used", safelyGetLong(() -> memoryMXBean.getNonHeapMemoryUsage().getUsed()));
+        props.put("memory.nonHeapMemoryUsage.committed", safelyGetLong(() -> memoryMXBean.getNonHeapMemoryUsage().getCommitted()));
+        props.put("memory.nonHeapMemoryUsage.max", safelyGetLong(() -> memoryMXBean.getNonHeapMemoryUsage().getMax()));
 
         List<MemoryPoolMXBean> memoryPoolMXBeans = ManagementFactory.getMemoryPoolMXBeans();
         for (int i = 0; i < memoryPoolMXBeans.size(); i++) {
             MemoryPoolMXBean memoryPoolMXBean = memoryPoolMXBeans.get(i);
-            props.put("memoryPool." + i + ".name", safelyGet(memoryPoolMXBean::getName));
-            props.put("memoryPool." + i + ".type", safelyGet(memoryPoolMXBean::getType));
-            props.put("memoryPool." + i + ".collectionUsage", safelyGet(memoryPoolMXBean::getCollectionUsage));
-            props.put("memoryPool." + i + ".memoryManagerNames", Arrays.toString(safelyGet(memoryPoolMXBean::getMemoryManagerNames)));
-            props.put("memoryPool." + i + ".peakUsage", safelyGet(memoryPoolMXBean::getPeakUsage));
-            props.put("memoryPool." + i + ".usage", safelyGet(memoryPoolMXBean::getUsage));
-
-            boolean collectionUsageThresholdSupported = memoryPoolMXBean.isCollectionUsageThresholdSupported();
-            props.put("memoryPool." + i + ".collectionUsageThresholdSupported", collectionUsageThresholdSupported);
-            if (collectionUsageThresholdSupported) {
-                props.put("memoryPool." + i + ".collectionUsageThreshold", safelyGet(memoryPoolMXBean::getCollectionUsageThreshold));
-                props.put("memoryPool." + i + ".collectionUsageThresholdCount", safelyGet(memoryPoolMXBean::getCollectionUsageThresholdCount));
-                props.put("memoryPool." + i + ".collectionUsageThresholdExceeded", safelyGet(memoryPoolMXBean::isCollectionUsageThresholdExceeded));
+            props.put("memoryPool." + i + ".collectionUsage", PropertyValue.of(safelyGet(memoryPoolMXBean::getCollectionUsage)));
+            props.put("memoryPool." + i + ".peakUsage", PropertyValue.of(safelyGet(memoryPoolMXBean::getPeakUsage)));
+            props.put("memoryPool." + i + ".usage", PropertyValue.of(safelyGet(memoryPoolMXBean::getUsage)));
+
+            if (memoryPoolMXBean.isCollectionUsageThresholdSupported()) {
+                props.put("memoryPool." + i + ".collectionUsageThreshold", safelyGetLong(memoryPoolMXBean::getCollectionUsageThreshold));
+                props.put("memoryPool." + i + ".collectionUsageThresholdCount", safelyGetLong(memoryPoolMXBean::getCollectionUsageThresholdCount));
+                props.put("memoryPool." + i + ".collectionUsageThresholdExceeded", safelyGetBoolean(memoryPoolMXBean::isCollectionUsageThresholdExceeded));
             }
 
-            boolean usageThresholdSupported = memoryPoolMXBean.isUsageThresholdSupported();
-            props.put("memoryPool." + i + ".usageThresholdSupported", usageThresholdSupported);
-            if (usageThresholdSupported) {
-                props.put("memoryPool." + i + ".usageThreshold", safelyGet(memoryPoolMXBean::getUsageThreshold));
-                props.put("memoryPool." + i + ".usageThresholdCount", safelyGet(memoryPoolMXBean::getUsageThresholdCount));
-                props.put("memoryPool." + i + ".usageThresholdExceeded", safelyGet(memoryPoolMXBean::isUsageThresholdExceeded));
+            if (memoryPoolMXBean.isUsageThresholdSupported()) {
+                props.put("memoryPool." + i + ".usageThreshold", safelyGetLong(memoryPoolMXBean::getUsageThreshold));
+                props.put("memoryPool." + i + ".usageThresholdCount", safelyGetLong(memoryPoolMXBean::getUsageThresholdCount));
+                props.put("memoryPool." + i + ".usageThresholdExceeded", safelyGetBoolean(memoryPoolMXBean::isUsageThresholdExceeded));
             }
         }
     }
 
-    private void addOsInfo(Map<Object, Object> props) {
+    private void addStaticOsInfo(Map<String, PropertyValue> props) {
         OperatingSystemMXBean osMXBean = ManagementFactory.getOperatingSystemMXBean();
-        props.put("os.arch", safelyGet(osMXBean::getArch));
-        props.put("os.availableProcessors", safelyGet(osMXBean::getAvailableProcessors));
-        props.put("os.name", safelyGet(osMXBean::getName));
-        props.put("os.systemLoadAverage", safelyGet(osMXBean::getSystemLoadAverage));
-        props.put("os.version", safelyGet(osMXBean::getVersion));
+        props.put("os.arch", PropertyValue.of(safelyGet(osMXBean::getArch)));
+        props.put("os.name", PropertyValue.of(safelyGet(osMXBean::getName)));
+        props.put("os.version", PropertyValue.of(safelyGet(osMXBean::getVersion)));
     }
 
-    private void addThreadInfo(Map<Object, Object> props) {
+    private void addOsInfo(Map<String, PropertyValue> props) {
+        OperatingSystemMXBean osMXBean = ManagementFactory.getOperatingSystemMXBean();
+        props.put("os.availableProcessors", safelyGetLong(osMXBean::getAvailableProcessors));
+        props.put("os.systemLoadAverage", safelyGetDouble(osMXBean::getSystemLoadAverage));
+    }
+
+    private void addStaticThreadInfo(Map<String, PropertyValue> props) {
         ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        props.put("thread.isCurrentThreadCpuTimeSupported", safelyGetBoolean(threadMXBean::isCurrentThreadCpuTimeSupported));
+        props.put("thread.isSynchronizerUsageSupported", safelyGetBoolean(threadMXBean::isSynchronizerUsageSupported));
+        props.put("thread.isObjectMonitorUsageSupported", safelyGetBoolean(threadMXBean::isObjectMonitorUsageSupported));
+        props.put("thread.isThreadContentionMonitoringSupported", safelyGetBoolean(threadMXBean::isThreadContentionMonitoringSupported));
+        props.put("thread.isThreadCpuTimeSupported", safelyGetBoolean(threadMXBean::isThreadCpuTimeSupported));
+    }
 
-        props.put("thread.threadIds", safelyGet(threadMXBean::getAllThreadIds));
-        props.put("thread.deadlockedThreads", safelyGet(threadMXBean::findDeadlockedThreads));
-        props.put("thread.monitorDeadlockedThreads", safelyGet(threadMXBean::findMonitorDeadlockedThreads));
-        props.put("thread.daemonThreadCount", safelyGet(threadMXBean::getDaemonThreadCount));
-        props.put("thread.peakThreadCount", safelyGet(threadMXBean::getPeakThreadCount));
-        props.put("thread.threadCount", safelyGet(threadMXBean::getThreadCount));
-        props.put("thread.totalStartedThreadCount", safelyGet(threadMXBean::getTotalStartedThreadCount));
+    private void addThreadInfo(Map<String, PropertyValue> props, int threadStackDepth) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        props.put("thread.threadIds", PropertyValue.of(safelyGet(threadMXBean::getAllThreadIds)));
+        props.put("thread.deadlockedThreads", PropertyValue.of(safelyGet(threadMXBean::findDeadlockedThreads)));
+        props.put("thread.monitorDeadlockedThreads", PropertyValue.of(safelyGet(threadMXBean::findMonitorDeadlockedThreads)));
+        props.put("thread.daemonThreadCount", safelyGetLong(threadMXBean::getDaemonThreadCount));
+        props.put("thread.peakThreadCount", safelyGetLong(threadMXBean::getPeakThreadCount));
+        props.put("thread.threadCount", safelyGetLong(threadMXBean::getThreadCount));
+        props.put("thread.totalStartedThreadCount", safelyGetLong(threadMXBean::getTotalStartedThreadCount));
 
-        safelyRun(() -> addThreadIdInfo(threadMXBean, props));
+        addThreadIdInfo(threadMXBean, props, threadStackDepth);
 
-        props.put("thread.isCurrentThreadCpuTimeSupported", safelyGet(threadMXBean::isCurrentThreadCpuTimeSupported));
-        props.put("thread.isSynchronizerUsageSupported", safelyGet(threadMXBean::isSynchronizerUsageSupported));
-        props.put("thread.isObjectMonitorUsageSupported", safelyGet(threadMXBean::isObjectMonitorUsageSupported));
-        props.put("thread.isThreadContentionMonitoringSupported", safelyGet(threadMXBean::isThreadContentionMonitoringSupported));
-        props.put("thread.isThreadContentionMonitoringEnabled", safelyGet(threadMXBean::isThreadContentionMonitoringEnabled));
-        props.put("thread.isThreadCpuTimeSupported", safelyGet(threadMXBean::isThreadCpuTimeSupported));
-        props.put("thread.isThreadCpuTimeEnabled", safelyGet(threadMXBean::isThreadCpuTimeEnabled));
+        props.put("thread.isThreadContentionMonitoringEnabled", safelyGetBoolean(threadMXBean::isThreadContentionMonitoringEnabled));
+        props.put("thread.isThreadCpuTimeEnabled", safelyGetBoolean(threadMXBean::isThreadCpuTimeEnabled));
     }
 
-    private void addThreadIdInfo(ThreadMXBean threadMXBean, Map<Object, Object> props) {
-        for (long threadId : threadMXBean.getAllThreadIds()) {
-            props.put("thread." + threadId + ".cpuTime", safelyGet(() -> threadMXBean.getThreadCpuTime(threadId)));
-            props.put("thread." + threadId + ".userTime", safelyGet(() -> threadMXBean.getThreadUserTime(threadId)));
-            props.put("thread." + threadId + ".info", safelyGet(() -> threadMXBean.getThreadInfo(threadId)));
+    private void addThreadIdInfo(ThreadMXBean threadMXBean, Map<String, PropertyValue> props, int threadStackDepth) {
+        long[] threadIds = threadMXBean.getAllThreadIds();
+        long[] cpuTimes = safelyGet(() -> getThreadCpuTimes(threadMXBean, threadIds));
+        long[] userTimes = safelyGet(() -> getThreadUserTimes(threadMXBean, threadIds));
+        ThreadInfo[] threadInfos = safelyGet(() -> threadMXBean.getThreadInfo(threadIds, threadStackDepth));
+
+        for (int i = 0; i < threadIds.length; i++) {
+            props.put("thread." + threadIds[i] + ".cpuTime", cpuTimes != null ? PropertyValue.of(cpuTimes[i]) : PropertyValue.NULL);
+            props.put("thread." + threadIds[i] + ".userTime", userTimes != null ? PropertyValue.of(userTimes[i]) : PropertyValue.NULL);
+            props.put("thread." + threadIds[i] + ".info", PropertyValue.of(threadInfos != null ? threadInfos[i] : null));
         }
     }
 
-    private <T> T safelyGet(Supplier<T> supplier) {
+    private long[] getThreadCpuTimes(ThreadMXBean threadMXBean, long[] threadIds) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean extendedThreadMXBean) {
+            return extendedThreadMXBean.getThreadCpuTime(threadIds);
+        }
+        else {
+            return Arrays.stream(threadIds).map(threadMXBean::getThreadCpuTime).toArray();
+        }
+    }
+
+    private long[] getThreadUserTimes(ThreadMXBean threadMXBean, long[] threadIds) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean extendedThreadMXBean) {
+            return extendedThreadMXBean.getThreadUserTime(threadIds);
+        }
+        else {
+            return Arrays.stream(threadIds).map(threadMXBean::getThreadUserTime).toArray();
+        }
+    }
+
+    private PropertyValue safelyGetLong(LongSupplier supplier) {
         try {
-            return supplier.get();
+            return PropertyValue.of(supplier.getAsLong());
         }
         catch (Throwable throwable) {
             // swallow the error :(
-            return null;
+            Instrumentation.recordSwallowed(throwable);
+            return PropertyValue.NULL;
         }
     }
 
-    private void safelyRun(Runnable runnable) {
+    private PropertyValue safelyGetDouble(DoubleSupplier supplier) {
         try {
-            runnable.run();
+            return PropertyValue.of(supplier.getAsDouble());
         }
         catch (Throwable throwable) {
             // swallow the error :(
+            Instrumentation.recordSwallowed(throwable);
+            return PropertyValue.NULL;
         }
     }
 
-    private static final BinaryOperator<String> MERGE_FUNCTION =
-            (key ,ignored) -> { throw new IllegalStateException(format("Duplicate key: %s", key)); };
-
-    private static final Collector<Entry<String, String>, ?, Map<String, String>> ENTRY_COLLECTOR =
-            Collectors.toMap(
-                    Entry::getKey,
-                    Entry::getValue,
-                    MERGE_FUNCTION,
-                    TreeMap::new
-            );
-
-    private static final Collector<Entry<?, ?>, ?, Map<String, String>> ENTRY_TO_STRING_COLLECTOR =
-            Collectors.toMap(
-                    entry -> toString(entry.getKey()),
-                    entry -> toString(entry.getValue()),
-                    MERGE_FUNCTION,
-                    TreeMap::new
-            );
-
-    private static String toString(Object object) {
-        if (object != null && object.getClass().isArray()) {
-            Class<?> clazz = object.getClass();
-            if (clazz == byte[].class) return Arrays.toString((byte[]) object);
-            else if (clazz == short[].class) return Arrays.toString((short[]) object);
-            else if (clazz == int[].class) return Arrays.toString((int[]) object);
-            else if (clazz == long[].class) return Arrays.toString((long[]) object);
-            else if (clazz == char[].class) return Arrays.toString((char[]) object);
-            else if (clazz == float[].class) return Arrays.toString((float[]) object);
-            else if (clazz == double[].class) return Arrays.toString((double[]) object);
-            else if (clazz == boolean[].class) return Arrays.toString((boolean[]) object);
-            else return Arrays.deepToString((Object[]) object);
+    private PropertyValue safelyGetBoolean(BooleanSupplier supplier) {
+        try {
+            return PropertyValue.of(supplier.getAsBoolean());
         }
-        else {
-            return String.valueOf(object);
+        catch (Throwable throwable) {
+            // swallow the error :(
+            Instrumentation.recordSwallowed(throwable);
+            return PropertyValue.NULL;
+        }
+    }
+
+    private <T> T safelyGet(Supplier<T> supplier) {
+        try {
+            return supplier.get();
+        }
+        catch (Throwable throwable) {
+            // swallow the error :(
+            Instrumentation.recordSwallowed(throwable);
+            return null;
+        }
+    }
+
+    private record Snapshot(Map<String, PropertyValue> properties, long collectedAt) {
+    }
+
+    /**
+     * Read-only {@link String} view of the values, a value is converted only when it is accessed.
+     */
+    private static class StringValuesView extends AbstractMap<String, String> {
+        private final Map<String, PropertyValue> values;
+
+        private StringValuesView(Map<String, PropertyValue> values) {
+            this.values = values;
+        }
+
+        @Override
+        public String get(Object key) {
+            PropertyValue value = values.get(key);
+            return value != null ? value.asString() : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    Iterator<Entry<String, PropertyValue>> iterator = values.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            Entry<String, PropertyValue> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().asString());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.size();
+                }
+            };
+        }
+    }
+
+    public static class Builder {
+        private Iterable<AppInfoComponent> components = DEFAULTS;
+        private final Map<AppInfoComponent, Duration> ttls = new EnumMap<>(AppInfoComponent.class);
+        private int threadStackDepth = 0;
+        private int topThreadCount = 10;
+        private final Map<AppInfoComponent, Duration> timeouts = new EnumMap<>(AppInfoComponent.class);
+        private Duration defaultTimeout = Duration.ofSeconds(5);
+
+        private Builder() {
+        }
+
+        public Builder components(AppInfoComponent... components) {
+            return components(Arrays.asList(components));
+        }
+
+        public Builder components(Iterable<AppInfoComponent> components) {
+            this.components = components;
+            return this;
+        }
+
+        /**
+         * Overrides {@link AppInfoComponent#getDefaultTtl()} for the given component.
+         */
+        public Builder ttl(AppInfoComponent component, Duration ttl) {
+            this.ttls.put(component, ttl);
+            return this;
+        }
+
+        /**
+         * The maximum number of stack frames collected for each thread, 0 (default) means no stack traces.
+         */
+        public Builder threadStackDepth(int threadStackDepth) {
+            if (threadStackDepth < 0) {
+                throw new IllegalArgumentException(format("Thread stack depth must not be negative: %d", threadStackDepth));
+            }
+            this.threadStackDepth = threadStackDepth;
+            return this;
+        }
+
+        /**
+         * The number of threads reported by the {@link AppInfoComponent#TOP_THREADS} component in each ranking, 10 by default.
+         */
+        public Builder topThreadCount(int topThreadCount) {
+            if (topThreadCount < 0) {
+                throw new IllegalArgumentException(format("Top thread count must not be negative: %d", topThreadCount));
+            }
+            this.topThreadCount = topThreadCount;
+            return this;
+        }
+
+        /**
+         * How long a component can take to collect before it is reported as timed out, 5 seconds by default.
+         */
+        public Builder timeout(Duration timeout) {
+            this.defaultTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Overrides the default timeout for the given component.
+         */
+        public Builder timeout(AppInfoComponent component, Duration timeout) {
+            this.timeouts.put(component, timeout);
+            return this;
+        }
+
+        public AppInfo build() {
+            return new AppInfo(this);
         }
     }
 }
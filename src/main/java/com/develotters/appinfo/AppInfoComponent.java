@@ -1,6 +1,11 @@
 package com.develotters.appinfo;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import static java.util.stream.Collectors.toSet;
@@ -9,15 +14,160 @@ import static java.util.stream.Collectors.toSet;
  * @author Jonatan Ivanov
  */
 public enum AppInfoComponent {
-    SYSTEM_PROPERTIES,
-    ENVIRONMENT_VARIABLES,
-    RUNTIME,
-    CLASS_LOADING,
-    COMPILATION,
-    GARBAGE_COLLECTOR,
-    MEMORY,
-    OPERATING_SYSTEM,
-    THREAD;
+    SYSTEM_PROPERTIES(Duration.ZERO),
+    ENVIRONMENT_VARIABLES(Duration.ZERO),
+    RUNTIME(Duration.ZERO,
+        "runtime.availableProcessors", "runtime.freeMemory", "runtime.maxMemory", "runtime.totalMemory",
+        "runtime.classPath", "runtime.inputArguments", "runtime.libraryPath", "runtime.managementSpecVersion",
+        "runtime.name", "runtime.specName", "runtime.specVendor", "runtime.specVersion", "runtime.startTime",
+        "runtime.uptime", "runtime.vmName", "runtime.vmVendor", "runtime.vmVersion"
+    ),
+    CLASS_LOADING(Duration.ZERO,
+        "classLoading.loadedClassCount", "classLoading.totalLoadedClassCount", "classLoading.unloadedClassCount"
+    ),
+    COMPILATION(Duration.ZERO,
+        "compilation.name", "compilation.totalCompilationTime"
+    ),
+    GARBAGE_COLLECTOR(Duration.ofSeconds(1),
+        "gc.#.name", "gc.#.objectName", "gc.#.memoryPoolNames", "gc.#.collectionCount", "gc.#.collectionTime"
+    ),
+    /**
+     * Duration of the collections (in microseconds) recorded from the GC notifications, see {@link GcPauseRecorder}.
+     */
+    GC_PAUSE(Duration.ZERO,
+        "gcPause.#.name", "gcPause.#.concurrent", "gcPause.#.count", "gcPause.#.totalTime", "gcPause.#.maxTime", "gcPause.#.p#Time",
+        "gcPause.#.reclaimedBytes",
+        "gcPause.#.cause.#.name", "gcPause.#.cause.#.count", "gcPause.#.cause.#.totalTime", "gcPause.#.cause.#.maxTime", "gcPause.#.cause.#.p#Time",
+        "gcPause.#.last.id", "gcPause.#.last.cause", "gcPause.#.last.action", "gcPause.#.last.startTime", "gcPause.#.last.duration",
+        "gcPause.#.last.pool.#.usedBefore", "gcPause.#.last.pool.#.usedAfter"
+    ),
+    MEMORY(Duration.ofSeconds(1),
+        "memoryManager.#.name", "memoryManager.#.objectName", "memoryManager.#.memoryPoolNames",
+        "memory.heapMemoryUsage.init", "memory.heapMemoryUsage.used", "memory.heapMemoryUsage.committed", "memory.heapMemoryUsage.max",
+        "memory.nonHeapMemoryUsage.init", "memory.nonHeapMemoryUsage.used", "memory.nonHeapMemoryUsage.committed", "memory.nonHeapMemoryUsage.max",
+        "memoryPool.#.name", "memoryPool.#.type", "memoryPool.#.memoryManagerNames",
+        "memoryPool.#.collectionUsage", "memoryPool.#.peakUsage", "memoryPool.#.usage",
+        "memoryPool.#.collectionUsageThresholdSupported", "memoryPool.#.collectionUsageThreshold",
+        "memoryPool.#.collectionUsageThresholdCount", "memoryPool.#.collectionUsageThresholdExceeded",
+        "memoryPool.#.usageThresholdSupported", "memoryPool.#.usageThreshold",
+        "memoryPool.#.usageThresholdCount", "memoryPool.#.usageThresholdExceeded"
+    ),
+    /**
+     * Memory used outside the heap: buffer pools and the Native Memory Tracking summary if it is enabled, see {@link NativeMemoryReader}.
+     */
+    NATIVE_MEMORY(Duration.ofSeconds(1),
+        "nativeMemory.bufferPool.#.name", "nativeMemory.bufferPool.#.count",
+        "nativeMemory.bufferPool.#.totalCapacity", "nativeMemory.bufferPool.#.memoryUsed",
+        "nativeMemory.nmt.enabled", "nativeMemory.nmt.collectedAt", "nativeMemory.nmt.error",
+        "nativeMemory.nmt.total.reserved", "nativeMemory.nmt.total.committed",
+        "nativeMemory.nmt.#.category", "nativeMemory.nmt.#.reserved", "nativeMemory.nmt.#.committed"
+    ),
+    /**
+     * The classes that take up the most space in the heap, see {@link HeapHistogramCollector}.
+     */
+    HEAP_HISTOGRAM(Duration.ZERO,
+        "heapHistogram.inProgress", "heapHistogram.collectedAt", "heapHistogram.duration", "heapHistogram.error",
+        "heapHistogram.total.instances", "heapHistogram.total.bytes",
+        "heapHistogram.bySize.#.class", "heapHistogram.bySize.#.instances", "heapHistogram.bySize.#.bytes",
+        "heapHistogram.byCount.#.class", "heapHistogram.byCount.#.instances", "heapHistogram.byCount.#.bytes"
+    ),
+    OPERATING_SYSTEM(Duration.ZERO,
+        "os.arch", "os.availableProcessors", "os.name", "os.systemLoadAverage", "os.version"
+    ),
+    THREAD(Duration.ofSeconds(1),
+        "thread.threadIds", "thread.deadlockedThreads", "thread.monitorDeadlockedThreads",
+        "thread.daemonThreadCount", "thread.peakThreadCount", "thread.threadCount", "thread.totalStartedThreadCount",
+        "thread.#.cpuTime", "thread.#.userTime", "thread.#.info",
+        "thread.isCurrentThreadCpuTimeSupported", "thread.isSynchronizerUsageSupported", "thread.isObjectMonitorUsageSupported",
+        "thread.isThreadContentionMonitoringSupported", "thread.isThreadContentionMonitoringEnabled",
+        "thread.isThreadCpuTimeSupported", "thread.isThreadCpuTimeEnabled"
+    ),
+    /**
+     * How fast the counters of the other components change, see {@link RateCalculator}.
+     */
+    RATE(Duration.ofSeconds(1),
+        "rate.interval", "rate.gc.overhead", "rate.gc.#.overhead", "rate.compilation.overhead",
+        "rate.process.cpuUsage", "rate.thread.#.cpuUsage",
+        "rate.classLoading.loadRate", "rate.classLoading.unloadRate", "rate.memory.allocationRate"
+    ),
+    /**
+     * The threads that used the most CPU time and allocated the most bytes over the last 10 seconds, see {@link TopThreadsCalculator}.
+     */
+    TOP_THREADS(Duration.ofSeconds(1),
+        "topThreads.interval",
+        "topThreads.cpu.#.id", "topThreads.cpu.#.name", "topThreads.cpu.#.state", "topThreads.cpu.#.cpuTime", "topThreads.cpu.#.cpuUsage",
+        "topThreads.allocation.#.id", "topThreads.allocation.#.name", "topThreads.allocation.#.state",
+        "topThreads.allocation.#.allocatedBytes", "topThreads.allocation.#.allocationRate"
+    ),
+    /**
+     * Timings and error counts of app-info itself, see {@link Instrumentation}.
+     * The keys contain the names of the components and HTTP paths, so they are not listed.
+     */
+    INSTRUMENTATION(Duration.ZERO),
+    /**
+     * Summaries of JFR events (safepoints, GC phase pauses, monitor contention, parking, allocations), see {@link JfrRecorder}.
+     */
+    JFR(Duration.ZERO,
+        "jfr.running", "jfr.error",
+        "jfr.safepoint.count", "jfr.safepoint.totalTime", "jfr.safepoint.maxTime", "jfr.safepoint.p#Time",
+        "jfr.gcPhasePause.count", "jfr.gcPhasePause.totalTime", "jfr.gcPhasePause.maxTime", "jfr.gcPhasePause.p#Time",
+        "jfr.monitorEnter.count", "jfr.monitorEnter.totalTime", "jfr.monitorEnter.maxTime", "jfr.monitorEnter.p#Time",
+        "jfr.monitorEnter.top.#.class", "jfr.monitorEnter.top.#.totalTime",
+        "jfr.threadPark.count", "jfr.threadPark.totalTime", "jfr.threadPark.maxTime", "jfr.threadPark.p#Time",
+        "jfr.threadPark.top.#.class", "jfr.threadPark.top.#.totalTime",
+        "jfr.allocation.sampledBytes", "jfr.allocation.top.#.class", "jfr.allocation.top.#.sampledBytes"
+    );
 
     public static final Set<AppInfoComponent> ALL = Arrays.stream(AppInfoComponent.values()).collect(toSet());
+
+    /**
+     * The components that are collected if the components are not specified, everything but
+     * {@link #RATE}, {@link #TOP_THREADS} and {@link #INSTRUMENTATION} (they are only meaningful if the same instance is called repeatedly),
+     * {@link #HEAP_HISTOGRAM} (it triggers full GCs) and {@link #JFR} (it starts a JFR recording).
+     */
+    public static final Set<AppInfoComponent> DEFAULTS = ALL.stream()
+        .filter(component -> component != RATE && component != TOP_THREADS && component != INSTRUMENTATION && component != HEAP_HISTOGRAM && component != JFR)
+        .collect(toSet());
+
+    private final Duration defaultTtl;
+    private final List<String> keyTemplates;
+
+    AppInfoComponent(Duration defaultTtl, String... keyTemplates) {
+        this.defaultTtl = defaultTtl;
+        this.keyTemplates = List.of(keyTemplates);
+    }
+
+    /**
+     * How long the volatile properties of the component are cached by default,
+     * {@link Duration#ZERO} means they are collected on every call.
+     * Properties that can't change in a running JVM are collected only once regardless of this value.
+     */
+    public Duration getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    /**
+     * The keys the component can produce where {@code #} stands for an index, an id or any other number (e.g.: {@code p#Time}),
+     * empty if the keys can't be known up front (e.g.: system properties).
+     */
+    public List<String> getKeyTemplates() {
+        return keyTemplates;
+    }
+
+    /**
+     * @param names the names of the components, case-insensitive, {@code -} can be used instead of {@code _} (e.g.: {@code garbage-collector})
+     */
+    public static Set<AppInfoComponent> of(Collection<String> names) {
+        Set<AppInfoComponent> components = EnumSet.noneOf(AppInfoComponent.class);
+        for (String name : names) {
+            try {
+                components.add(valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_')));
+            }
+            catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException("Unknown component: " + name + ", available components: " + Arrays.toString(values()), exception);
+            }
+        }
+
+        return components;
+    }
 }
@@ -0,0 +1,184 @@
+package com.develotters.appinfo;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+/**
+ * Listens to the GC notifications of the JVM and records the duration of the collections (in microseconds, the JVM reports them
+ * with millisecond resolution) per collector and per cause together with the memory pool usage before and after the last collection.
+ * The collectors of ZGC and Shenandoah that report whole concurrent cycles (e.g.: {@code ZGC Cycles}) are labeled
+ * with {@code gcPause.#.concurrent} since their durations are not pauses, their pauses are reported by separate collectors
+ * (e.g.: {@code ZGC Pauses}).
+ * There is only one instance per JVM, it starts listening when it is first used so collections before that are not recorded.
+ * Collectors and memory pools are indexed the same way as in the {@link AppInfoComponent#GARBAGE_COLLECTOR}
+ * and {@link AppInfoComponent#MEMORY} components, causes are indexed in the order they were first seen.
+ *
+ * @author Jonatan Ivanov
+ */
+final class GcPauseRecorder implements NotificationListener {
+    private static volatile GcPauseRecorder instance;
+
+    private final List<String> collectorNames;
+    private final List<String> poolNames;
+    private final Collector[] collectors;
+    private final boolean[] concurrent;
+
+    private GcPauseRecorder() {
+        List<GarbageCollectorMXBean> gcMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        this.collectorNames = gcMXBeans.stream().map(GarbageCollectorMXBean::getName).toList();
+        this.poolNames = ManagementFactory.getMemoryPoolMXBeans().stream().map(MemoryPoolMXBean::getName).toList();
+        this.collectors = new Collector[gcMXBeans.size()];
+        this.concurrent = new boolean[gcMXBeans.size()];
+        for (int i = 0; i < collectors.length; i++) {
+            collectors[i] = new Collector();
+            concurrent[i] = isConcurrentCycle(collectorNames.get(i));
+        }
+
+        for (GarbageCollectorMXBean gcMXBean : gcMXBeans) {
+            if (gcMXBean instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(this, GcPauseRecorder::isGcNotification, null);
+            }
+        }
+    }
+
+    static GcPauseRecorder getInstance() {
+        GcPauseRecorder result = instance;
+        if (result == null) {
+            synchronized (GcPauseRecorder.class) {
+                result = instance;
+                if (result == null) {
+                    result = new GcPauseRecorder();
+                    instance = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return true if the collector reports concurrent cycles instead of pauses (e.g.: {@code ZGC Cycles}, {@code ZGC Major Cycles},
+     * {@code Shenandoah Cycles}), the action of their notifications is {@code end of GC cycle}
+     */
+    static boolean isConcurrentCycle(String collectorName) {
+        return collectorName.endsWith(" Cycles");
+    }
+
+    private static boolean isGcNotification(Notification notification) {
+        return GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType());
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        try {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            int index = collectorNames.indexOf(info.getGcName());
+            if (index >= 0) {
+                collectors[index].record(info, poolNames);
+            }
+        }
+        catch (Throwable throwable) {
+            // swallow the error :( the notification thread must not be disturbed
+        }
+    }
+
+    void addProperties(Map<String, PropertyValue> props) {
+        for (int i = 0; i < collectors.length; i++) {
+            String prefix = "gcPause." + i + ".";
+            props.put(prefix + "name", PropertyValue.of(collectorNames.get(i)));
+            props.put(prefix + "concurrent", PropertyValue.of(concurrent[i]));
+            collectors[i].addProperties(prefix, props);
+        }
+    }
+
+    private static class Collector {
+        private final Instrumentation.Timer pauses = new Instrumentation.Timer();
+        private final Map<String, Cause> causes = new ConcurrentHashMap<>();
+        private final AtomicInteger causeCount = new AtomicInteger();
+        private final LongAdder reclaimedBytes = new LongAdder();
+        private volatile LastPause lastPause;
+
+        private void record(GarbageCollectionNotificationInfo info, List<String> poolNames) {
+            GcInfo gcInfo = info.getGcInfo();
+            long duration = TimeUnit.MILLISECONDS.toMicros(gcInfo.getDuration());
+            pauses.record(duration);
+            causes.computeIfAbsent(info.getGcCause(), ignored -> new Cause(causeCount.getAndIncrement(), new Instrumentation.Timer()))
+                .pauses()
+                .record(duration);
+
+            long[] usedBefore = getUsed(gcInfo.getMemoryUsageBeforeGc(), poolNames);
+            long[] usedAfter = getUsed(gcInfo.getMemoryUsageAfterGc(), poolNames);
+            long reclaimed = 0;
+            for (int i = 0; i < usedBefore.length; i++) {
+                if (usedBefore[i] >= 0 && usedAfter[i] >= 0) {
+                    reclaimed += usedBefore[i] - usedAfter[i];
+                }
+            }
+            reclaimedBytes.add(Math.max(0, reclaimed));
+            lastPause = new LastPause(gcInfo.getId(), info.getGcCause(), info.getGcAction(), gcInfo.getStartTime(), duration, usedBefore, usedAfter);
+        }
+
+        /**
+         * @return the used bytes by memory pool index, -1 if the pool was not affected by the collection
+         */
+        private static long[] getUsed(Map<String, MemoryUsage> usages, List<String> poolNames) {
+            long[] used = new long[poolNames.size()];
+            for (int i = 0; i < used.length; i++) {
+                MemoryUsage usage = usages.get(poolNames.get(i));
+                used[i] = usage != null ? usage.getUsed() : -1;
+            }
+
+            return used;
+        }
+
+        private void addProperties(String prefix, Map<String, PropertyValue> props) {
+            pauses.addProperties(prefix, props);
+            props.put(prefix + "reclaimedBytes", PropertyValue.of(reclaimedBytes.sum()));
+            causes.forEach((name, cause) -> {
+                String causePrefix = prefix + "cause." + cause.index() + ".";
+                props.put(causePrefix + "name", PropertyValue.of(name));
+                cause.pauses().addProperties(causePrefix, props);
+            });
+
+            LastPause last = lastPause;
+            if (last != null) {
+                props.put(prefix + "last.id", PropertyValue.of(last.id()));
+                props.put(prefix + "last.cause", PropertyValue.of(last.cause()));
+                props.put(prefix + "last.action", PropertyValue.of(last.action()));
+                props.put(prefix + "last.startTime", PropertyValue.of(last.startTime()));
+                props.put(prefix + "last.duration", PropertyValue.of(last.duration()));
+                for (int i = 0; i < last.usedBefore().length; i++) {
+                    if (last.usedBefore()[i] >= 0) {
+                        props.put(prefix + "last.pool." + i + ".usedBefore", PropertyValue.of(last.usedBefore()[i]));
+                        props.put(prefix + "last.pool." + i + ".usedAfter", PropertyValue.of(last.usedAfter()[i]));
+                    }
+                }
+            }
+        }
+    }
+
+    private record Cause(int index, Instrumentation.Timer pauses) {
+    }
+
+    /**
+     * @param startTime milliseconds since the JVM started
+     * @param duration microseconds
+     */
+    private record LastPause(long id, String cause, String action, long startTime, long duration, long[] usedBefore, long[] usedAfter) {
+    }
+}
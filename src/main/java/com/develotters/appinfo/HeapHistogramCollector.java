@@ -0,0 +1,182 @@
+package com.develotters.appinfo;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Takes class histograms of the heap with the {@code GC.class_histogram} diagnostic command (the same as {@code jmap -histo:live})
+ * and keeps the top classes by size and by instance count. A histogram needs a full GC and a walk of the whole heap,
+ * so it is taken on a background thread, only one at a time and at most once in {@link #MIN_INTERVAL_MILLIS}
+ * (measured from the end of the previous one) no matter how often the component is collected.
+ * Collecting the component reports the last histogram (with the time it was taken) and starts a new one if the last one is old enough,
+ * so the first collection does not report a histogram.
+ * There is only one instance per JVM, the limits also apply to the histograms taken by {@link MemoryThresholdMonitor}.
+ *
+ * @author Jonatan Ivanov
+ */
+final class HeapHistogramCollector {
+    private static final long MIN_INTERVAL_MILLIS = 60_000;
+    private static final int TOP = 20;
+    private static final Pattern ROW = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)");
+    private static final Pattern TOTAL = Pattern.compile("^Total\\s+(\\d+)\\s+(\\d+)");
+    private static volatile HeapHistogramCollector instance;
+
+    private final AtomicBoolean inProgress = new AtomicBoolean();
+    private volatile Histogram lastHistogram;
+    private volatile long lastFinishedAt;
+
+    private HeapHistogramCollector() {
+    }
+
+    static HeapHistogramCollector getInstance() {
+        HeapHistogramCollector result = instance;
+        if (result == null) {
+            synchronized (HeapHistogramCollector.class) {
+                result = instance;
+                if (result == null) {
+                    result = new HeapHistogramCollector();
+                    instance = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    void addProperties(Map<String, PropertyValue> props) {
+        if (tryStart()) {
+            Thread.ofPlatform().name("app-info-heap-histogram").daemon().start(this::takeHistogram);
+        }
+
+        props.put("heapHistogram.inProgress", PropertyValue.of(inProgress.get()));
+        Histogram histogram = lastHistogram;
+        if (histogram != null) {
+            histogram.addProperties(props);
+        }
+    }
+
+    /**
+     * Takes a histogram on the calling thread unless one is in progress or the last one is not old enough.
+     *
+     * @return null if the histogram was not taken
+     */
+    Histogram tryTakeHistogram() {
+        return tryStart() ? takeHistogram() : null;
+    }
+
+    private boolean tryStart() {
+        return System.currentTimeMillis() - lastFinishedAt >= MIN_INTERVAL_MILLIS && inProgress.compareAndSet(false, true);
+    }
+
+    private Histogram takeHistogram() {
+        long start = System.currentTimeMillis();
+        try {
+            lastHistogram = parse(classHistogram(), start, System.currentTimeMillis() - start);
+        }
+        catch (Throwable throwable) {
+            lastHistogram = new Histogram(start, System.currentTimeMillis() - start, -1, -1, List.of(), String.valueOf(throwable));
+        }
+        finally {
+            lastFinishedAt = System.currentTimeMillis();
+            inProgress.set(false);
+        }
+
+        return lastHistogram;
+    }
+
+    /**
+     * Takes a histogram on the calling thread.
+     *
+     * @return the output of {@code GC.class_histogram}
+     */
+    static String classHistogram() throws JMException {
+        Object output = ManagementFactory.getPlatformMBeanServer().invoke(
+            new ObjectName("com.sun.management:type=DiagnosticCommand"),
+            "gcClassHistogram",
+            new Object[] { new String[0] },
+            new String[] { String[].class.getName() }
+        );
+        return String.valueOf(output);
+    }
+
+    /**
+     * @param output the output of {@code GC.class_histogram}
+     */
+    static Histogram parse(String output, long collectedAt, long duration) {
+        long instances = -1;
+        long bytes = -1;
+        List<Row> rows = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            Matcher rowMatcher = ROW.matcher(line);
+            if (rowMatcher.find()) {
+                rows.add(new Row(rowMatcher.group(3), Long.parseLong(rowMatcher.group(1)), Long.parseLong(rowMatcher.group(2))));
+                continue;
+            }
+            Matcher totalMatcher = TOTAL.matcher(line);
+            if (totalMatcher.find()) {
+                instances = Long.parseLong(totalMatcher.group(1));
+                bytes = Long.parseLong(totalMatcher.group(2));
+            }
+        }
+
+        return new Histogram(collectedAt, duration, instances, bytes, rows, instances < 0 ? output.strip() : null);
+    }
+
+    /**
+     * @param collectedAt the time the histogram was started (epoch millis)
+     * @param duration how long it took to take the histogram (milliseconds)
+     * @param error the reason the histogram is not available, null if it is
+     */
+    record Histogram(long collectedAt, long duration, long instances, long bytes, List<Row> rows, String error) {
+        Histogram {
+            rows = rows.stream().sorted(Comparator.comparingLong(Row::bytes).reversed()).toList();
+        }
+
+        /**
+         * @return the top classes by size
+         */
+        List<Row> topBySize() {
+            return rows.stream().limit(TOP).toList();
+        }
+
+        /**
+         * @return the top classes by the number of instances
+         */
+        List<Row> topByCount() {
+            return rows.stream().sorted(Comparator.comparingLong(Row::instances).reversed()).limit(TOP).toList();
+        }
+
+        private void addProperties(Map<String, PropertyValue> props) {
+            props.put("heapHistogram.collectedAt", PropertyValue.of(collectedAt));
+            props.put("heapHistogram.duration", PropertyValue.of(duration));
+            if (error != null) {
+                props.put("heapHistogram.error", PropertyValue.of(error));
+                return;
+            }
+
+            props.put("heapHistogram.total.instances", PropertyValue.of(instances));
+            props.put("heapHistogram.total.bytes", PropertyValue.of(bytes));
+            addRows("heapHistogram.bySize.", topBySize(), props);
+            addRows("heapHistogram.byCount.", topByCount(), props);
+        }
+
+        private static void addRows(String prefix, List<Row> rows, Map<String, PropertyValue> props) {
+            for (int i = 0; i < rows.size(); i++) {
+                props.put(prefix + i + ".class", PropertyValue.of(rows.get(i).className()));
+                props.put(prefix + i + ".instances", PropertyValue.of(rows.get(i).instances()));
+                props.put(prefix + i + ".bytes", PropertyValue.of(rows.get(i).bytes()));
+            }
+        }
+    }
+
+    record Row(String className, long instances, long bytes) {
+    }
+}
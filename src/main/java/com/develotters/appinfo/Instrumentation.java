@@ -0,0 +1,140 @@
+package com.develotters.appinfo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timers that record how long app-info itself takes (collecting the components, serving the requests)
+ * and how many errors happened by exception type, including the errors that are swallowed while collecting a component.
+ * Recording does not allocate (except for the first error of a type) and does not block.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class Instrumentation {
+    private static final ScopedValue<Timer> CURRENT_TIMER = ScopedValue.newInstance();
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @return the timer registered with the given name, a new one is registered if there is none,
+     * callers should hold on to the returned instance instead of looking it up on every call
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, ignored -> new Timer());
+    }
+
+    /**
+     * Errors passed to {@link #recordSwallowed(Throwable)} while the supplier runs are recorded by the given timer.
+     */
+    static <T> T callWith(Timer timer, Supplier<T> supplier) {
+        return ScopedValue.where(CURRENT_TIMER, timer).call(supplier::get);
+    }
+
+    /**
+     * Records an error that was swallowed, it is counted only if it happened within {@link #callWith(Timer, Supplier)}.
+     */
+    static void recordSwallowed(Throwable throwable) {
+        if (CURRENT_TIMER.isBound()) {
+            CURRENT_TIMER.get().recordError(throwable);
+        }
+    }
+
+    void addProperties(Map<String, PropertyValue> props) {
+        timers.forEach((name, timer) -> timer.addProperties("instrumentation." + name + ".", props));
+    }
+
+    /**
+     * Counts, total and max time and a log-linear histogram: every power of two range is split into {@link #SUB_BUCKETS} linear buckets
+     * (like HdrHistogram with one significant digit), percentiles are reported as the upper bound of the bucket they fall into
+     * (capped by the max) so they are at most 12.5% higher than the recorded values.
+     * The unit of the time is up to the user of the timer, {@link Instrumentation} uses nanoseconds.
+     */
+    public static final class Timer {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+        private final AtomicLong maxTime = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS);
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        Timer() {
+        }
+
+        public void record(long time) {
+            long value = Math.max(0, time);
+            count.increment();
+            totalTime.add(value);
+            buckets.incrementAndGet(bucketIndex(value));
+            long max = maxTime.get();
+            while (value > max && !maxTime.compareAndSet(max, value)) {
+                max = maxTime.get();
+            }
+        }
+
+        public void recordError(Throwable throwable) {
+            errors.computeIfAbsent(throwable.getClass().getName(), ignored -> new LongAdder()).increment();
+        }
+
+        void addProperties(String prefix, Map<String, PropertyValue> props) {
+            props.put(prefix + "count", PropertyValue.of(count.sum()));
+            props.put(prefix + "totalTime", PropertyValue.of(totalTime.sum()));
+            props.put(prefix + "maxTime", PropertyValue.of(maxTime.get()));
+            props.put(prefix + "p50Time", PropertyValue.of(percentile(0.5)));
+            props.put(prefix + "p99Time", PropertyValue.of(percentile(0.99)));
+            errors.forEach((type, errorCount) -> props.put(prefix + "errors." + type, PropertyValue.of(errorCount.sum())));
+        }
+
+        /**
+         * The values below {@code 2 * SUB_BUCKETS} have their own buckets, above that the values between {@code 2^m} (inclusive)
+         * and {@code 2^(m+1)} (exclusive) are split into {@link #SUB_BUCKETS} buckets of the same width.
+         */
+        static int bucketIndex(long value) {
+            int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value | 1);
+            if (magnitude < SUB_BUCKET_BITS) {
+                return (int) value;
+            }
+
+            int shift = magnitude - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        /**
+         * @return the largest value that falls into the bucket
+         */
+        static long bucketUpperBound(int index) {
+            if (index < 2 * SUB_BUCKETS) {
+                return index;
+            }
+
+            int shift = index / SUB_BUCKETS - 1;
+            long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return lowerBound + (1L << shift) - 1;
+        }
+
+        private long percentile(double percentile) {
+            long[] counts = new long[buckets.length()];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+
+            long target = (long) Math.ceil(total * percentile);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= target && cumulative > 0) {
+                    return Math.min(bucketUpperBound(i), maxTime.get());
+                }
+            }
+
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.develotters.appinfo;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Streams a few JFR events in-process and aggregates them into summaries of bounded size:
+ * safepoints, GC phase pauses, monitor contention, thread parking (durations in nanoseconds) and sampled allocations.
+ * To keep the overhead low, no stack traces are recorded, short monitor enter and park events are not recorded
+ * (see {@link #THRESHOLD}) and allocations are sampled by JFR.
+ * There is only one instance per JVM, the recording starts when it is first used. It is reported as running once the stream
+ * was flushed (about every second), if the stream fails to start or stops with an error, the error is reported instead.
+ *
+ * @author Jonatan Ivanov
+ */
+final class JfrRecorder {
+    private static final Duration THRESHOLD = Duration.ofMillis(10);
+    private static final int MAX_CLASSES = 1024;
+    private static final int TOP = 10;
+    private static volatile JfrRecorder instance;
+
+    private final Instrumentation.Timer safepoints = new Instrumentation.Timer();
+    private final Instrumentation.Timer gcPhasePauses = new Instrumentation.Timer();
+    private final Instrumentation.Timer monitorEnters = new Instrumentation.Timer();
+    private final Instrumentation.Timer threadParks = new Instrumentation.Timer();
+    private final ClassCounter monitorEnterTimes = new ClassCounter();
+    private final ClassCounter threadParkTimes = new ClassCounter();
+    private final ClassCounter allocations = new ClassCounter();
+    private volatile boolean running;
+    private volatile Throwable error;
+
+    private JfrRecorder() {
+        try {
+            startRecordingStream();
+        }
+        catch (Throwable throwable) {
+            // e.g.: JFR is not available in the JVM
+            error = throwable;
+        }
+    }
+
+    static JfrRecorder getInstance() {
+        JfrRecorder result = instance;
+        if (result == null) {
+            synchronized (JfrRecorder.class) {
+                result = instance;
+                if (result == null) {
+                    result = new JfrRecorder();
+                    instance = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void startRecordingStream() {
+        RecordingStream stream = new RecordingStream();
+        stream.setMaxAge(Duration.ofSeconds(10));
+        stream.enable("jdk.SafepointBegin").withoutStackTrace();
+        stream.enable("jdk.GCPhasePause").withoutStackTrace();
+        stream.enable("jdk.JavaMonitorEnter").withThreshold(THRESHOLD).withoutStackTrace();
+        stream.enable("jdk.ThreadPark").withThreshold(THRESHOLD).withoutStackTrace();
+        stream.enable("jdk.ObjectAllocationSample").with("throttle", "150/s").withoutStackTrace();
+
+        stream.onEvent("jdk.SafepointBegin", event -> safepoints.record(event.getDuration().toNanos()));
+        stream.onEvent("jdk.GCPhasePause", event -> gcPhasePauses.record(event.getDuration().toNanos()));
+        stream.onEvent("jdk.JavaMonitorEnter", event -> {
+            monitorEnters.record(event.getDuration().toNanos());
+            monitorEnterTimes.add(getClassName(event, "monitorClass"), event.getDuration().toNanos());
+        });
+        stream.onEvent("jdk.ThreadPark", event -> {
+            threadParks.record(event.getDuration().toNanos());
+            threadParkTimes.add(getClassName(event, "parkedClass"), event.getDuration().toNanos());
+        });
+        stream.onEvent("jdk.ObjectAllocationSample", event -> allocations.add(getClassName(event, "objectClass"), event.getLong("weight")));
+        stream.onFlush(() -> running = true);
+        // startAsync() would use a non-daemon thread that prevents the JVM from exiting
+        Thread.ofPlatform().name("app-info-jfr").daemon().start(() -> consume(stream));
+    }
+
+    /**
+     * Blocks until the stream is closed.
+     */
+    private void consume(RecordingStream stream) {
+        try {
+            stream.start();
+        }
+        catch (Throwable throwable) {
+            error = throwable;
+        }
+        finally {
+            running = false;
+        }
+    }
+
+    private static String getClassName(RecordedEvent event, String field) {
+        RecordedClass recordedClass = event.getClass(field);
+        return recordedClass != null ? recordedClass.getName() : "unknown";
+    }
+
+    void addProperties(Map<String, PropertyValue> props) {
+        props.put("jfr.running", PropertyValue.of(running));
+        Throwable failure = error;
+        if (failure != null) {
+            props.put("jfr.error", PropertyValue.of(String.valueOf(failure)));
+            return;
+        }
+
+        safepoints.addProperties("jfr.safepoint.", props);
+        gcPhasePauses.addProperties("jfr.gcPhasePause.", props);
+        monitorEnters.addProperties("jfr.monitorEnter.", props);
+        monitorEnterTimes.addTop("jfr.monitorEnter.top.", "totalTime", props);
+        threadParks.addProperties("jfr.threadPark.", props);
+        threadParkTimes.addTop("jfr.threadPark.top.", "totalTime", props);
+        props.put("jfr.allocation.sampledBytes", PropertyValue.of(allocations.total()));
+        allocations.addTop("jfr.allocation.top.", "sampledBytes", props);
+    }
+
+    /**
+     * Sums values by class name, after {@link #MAX_CLASSES} classes the values of new classes are added to "other".
+     * The events are consumed on one thread, the map is concurrent because of the readers.
+     */
+    private static class ClassCounter {
+        private final Map<String, LongAdder> values = new ConcurrentHashMap<>();
+        private final LongAdder total = new LongAdder();
+
+        private void add(String className, long value) {
+            LongAdder adder = values.get(className);
+            if (adder == null) {
+                adder = values.computeIfAbsent(values.size() < MAX_CLASSES ? className : "other", ignored -> new LongAdder());
+            }
+            adder.add(value);
+            total.add(value);
+        }
+
+        private long total() {
+            return total.sum();
+        }
+
+        private void addTop(String prefix, String valueName, Map<String, PropertyValue> props) {
+            List<Map.Entry<String, Long>> top = values.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(TOP)
+                .toList();
+            for (int i = 0; i < top.size(); i++) {
+                props.put(prefix + i + ".class", PropertyValue.of(top.get(i).getKey()));
+                props.put(prefix + i + "." + valueName, PropertyValue.of(top.get(i).getValue().longValue()));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.develotters.appinfo;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Case-insensitive "contains any of the keys" matcher, the keys are compiled into an Aho-Corasick automaton
+ * so a property key is scanned only once regardless of the number of keys.
+ *
+ * @author Jonatan Ivanov
+ */
+final class KeyMatcher {
+    private final List<String> keys;
+    private final Node root;
+    private final Node templateRoot;
+
+    private KeyMatcher(List<String> keys) {
+        this.keys = List.copyOf(keys);
+        this.root = compile(this.keys, false);
+        this.templateRoot = compile(this.keys, true);
+    }
+
+    static KeyMatcher compile(List<String> keys) {
+        return new KeyMatcher(keys);
+    }
+
+    List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return true if the key contains any of the keys of the matcher (ignoring case)
+     */
+    boolean matches(String key) {
+        return matches(root, key);
+    }
+
+    /**
+     * @return true if any of the keys of the component can match, components without key templates always can
+     */
+    boolean mayMatch(AppInfoComponent component) {
+        List<String> keyTemplates = component.getKeyTemplates();
+        if (keyTemplates.isEmpty()) {
+            return true;
+        }
+
+        for (String keyTemplate : keyTemplates) {
+            if (matches(templateRoot, keyTemplate)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean matches(Node root, String key) {
+        if (root.output) {
+            return true;
+        }
+
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            char c = Character.toLowerCase(key.charAt(i));
+            Node next = node.children.get(c);
+            while (next == null && node != root) {
+                node = node.fail;
+                next = node.children.get(c);
+            }
+            node = next != null ? next : root;
+            if (node.output) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Node compile(Collection<String> keys, boolean template) {
+        Node root = new Node();
+        for (String key : keys) {
+            Node node = root;
+            String normalizedKey = template ? toTemplate(key) : key;
+            for (int i = 0; i < normalizedKey.length(); i++) {
+                node = node.children.computeIfAbsent(Character.toLowerCase(normalizedKey.charAt(i)), ignored -> new Node());
+            }
+            node.output = true;
+        }
+
+        Queue<Node> queue = new ArrayDeque<>();
+        for (Node child : root.children.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.remove();
+            for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                Node child = entry.getValue();
+                Node fail = node.fail;
+                while (fail != root && !fail.children.containsKey(entry.getKey())) {
+                    fail = fail.fail;
+                }
+                child.fail = fail.children.getOrDefault(entry.getKey(), root);
+                child.output |= child.fail.output;
+                queue.add(child);
+            }
+        }
+
+        return root;
+    }
+
+    /**
+     * Replaces every run of digits with {@code #} so that the key can be matched against
+     * {@link AppInfoComponent#getKeyTemplates()} where indices and ids are not known up front.
+     */
+    private static String toTemplate(String key) {
+        StringBuilder sb = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (Character.isDigit(c)) {
+                if (sb.isEmpty() || sb.charAt(sb.length() - 1) != '#') {
+                    sb.append('#');
+                }
+            }
+            else {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private Node fail;
+        private boolean output;
+    }
+}
@@ -1,46 +1,251 @@
 package com.develotters.appinfo;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+import com.develotters.appinfo.format.JsonFormat;
+import com.develotters.appinfo.format.OpenMetricsFormat;
+import com.develotters.appinfo.format.TextFormat;
+import com.develotters.appinfo.history.History;
+import com.develotters.appinfo.history.HistorySampler;
+import com.develotters.appinfo.history.SnapshotLog;
+import com.develotters.appinfo.history.SnapshotRecorder;
+import com.develotters.appinfo.http.ResponseWriter;
 import com.develotters.appinfo.http.SimpleHttpServer;
+import com.develotters.appinfo.profiler.ContentionProfiler;
+import com.develotters.appinfo.profiler.SamplingProfiler;
+import com.develotters.appinfo.profiler.StackTrie;
 
 /**
  * @author Jonatan Ivanov
  */
 public class Main {
-    private static final AppInfo APP_INFO = new AppInfo();
+    /**
+     * The components that are collected if a request does not name them: {@link AppInfoComponent#DEFAULTS},
+     * {@link AppInfoComponent#RATE} in server mode (a single call would report the averages since the JVM started)
+     * and the ones given with {@code --components}. The other components are only collected
+     * if a request names them (e.g.: {@code ?name=heap-histogram}) except {@link AppInfoComponent#JFR}: it starts a JFR
+     * recording so it is only available if it is given with {@code --components}.
+     */
+    private static Set<AppInfoComponent> defaultComponents;
+    private static AppInfo appInfo;
 
     public static void main(String[] args) throws IOException {
         List<String> arguments = Arrays.stream(args).collect(Collectors.toList());
 
+        String format = "text";
+        int formatIndex = arguments.indexOf("--format") + 1;
+        if (formatIndex > 0) {
+            format = arguments.remove(formatIndex);
+            arguments.remove("--format");
+        }
+
+        defaultComponents = EnumSet.copyOf(AppInfoComponent.DEFAULTS);
         if (arguments.contains("--server")) {
+            defaultComponents.add(AppInfoComponent.RATE);
+        }
+        int componentsIndex = arguments.indexOf("--components") + 1;
+        if (componentsIndex > 0) {
+            defaultComponents.addAll(AppInfoComponent.of(split(arguments.remove(componentsIndex))));
+            arguments.remove("--components");
+        }
+        Set<AppInfoComponent> components = EnumSet.copyOf(AppInfoComponent.ALL);
+        if (!defaultComponents.contains(AppInfoComponent.JFR)) {
+            components.remove(AppInfoComponent.JFR);
+        }
+        appInfo = new AppInfo(components);
+
+        int replayIndex = arguments.indexOf("--replay") + 1;
+        if (replayIndex > 0) {
+            replay(Path.of(arguments.get(replayIndex)), format);
+        }
+        else if (arguments.contains("--server")) {
             SimpleHttpServer httpServer;
             int portIndex = arguments.indexOf("--port") + 1;
             if (portIndex > 0) {
-                httpServer = new SimpleHttpServer(Integer.parseInt(arguments.remove(portIndex)), () -> getInfo(arguments));
+                httpServer = new SimpleHttpServer(Integer.parseInt(arguments.remove(portIndex)), parameters -> getInfoWriter(parameters, arguments, "text"));
                 arguments.remove("--port");
             }
             else {
-                httpServer = new SimpleHttpServer(() -> getInfo(arguments));
+                httpServer = new SimpleHttpServer(parameters -> getInfoWriter(parameters, arguments, "text"));
             }
 
             arguments.remove("--server");
+            httpServer.instrumentation(appInfo.getInstrumentation());
+            if (arguments.remove("--history")) {
+                HistorySampler historySampler = new HistorySampler(Duration.ofSeconds(10), 360).start();
+                httpServer.route("/history", JsonFormat.CONTENT_TYPE, () -> getHistoryWriter(historySampler));
+            }
+            int thresholdIndex = arguments.indexOf("--memory-thresholds") + 1;
+            if (thresholdIndex > 0) {
+                double threshold = Double.parseDouble(arguments.remove(thresholdIndex));
+                arguments.remove("--memory-thresholds");
+                MemoryThresholdMonitor.Capture capture = MemoryThresholdMonitor.Capture.NONE;
+                int captureIndex = arguments.indexOf("--memory-threshold-capture") + 1;
+                if (captureIndex > 0) {
+                    capture = MemoryThresholdMonitor.Capture.of(arguments.remove(captureIndex));
+                    arguments.remove("--memory-threshold-capture");
+                }
+                MemoryThresholdMonitor monitor = new MemoryThresholdMonitor(threshold, threshold, capture).start();
+                httpServer.route("/memory-thresholds", SimpleHttpServer.TEXT_PLAIN, () -> getInfoWriter(monitor.getValues(), "text"));
+                httpServer.route("/memory-thresholds", JsonFormat.CONTENT_TYPE, () -> getInfoWriter(monitor.getValues(), "json"));
+            }
+            int recordIndex = arguments.indexOf("--record") + 1;
+            if (recordIndex > 0) {
+                Path directory = Path.of(arguments.remove(recordIndex));
+                arguments.remove("--record");
+                new SnapshotRecorder(directory, () -> getValues(arguments), Duration.ofSeconds(1)).start();
+            }
+            String jsonFormat = format.equals("nested-json") ? format : "json";
+            httpServer.route("/", JsonFormat.CONTENT_TYPE, parameters -> getInfoWriter(parameters, arguments, jsonFormat));
+            httpServer.route("/components/{name}", SimpleHttpServer.TEXT_PLAIN, parameters -> getInfoWriter(parameters, arguments, "text"));
+            httpServer.route("/components/{name}", JsonFormat.CONTENT_TYPE, parameters -> getInfoWriter(parameters, arguments, jsonFormat));
+            httpServer.route("/metrics", OpenMetricsFormat.CONTENT_TYPE, Main::getMetricsWriter);
+            SamplingProfiler profiler = new SamplingProfiler();
+            httpServer.route("/profile", SimpleHttpServer.TEXT_PLAIN, parameters -> getProfileWriter(profiler, parameters));
+            ContentionProfiler contentionProfiler = new ContentionProfiler();
+            httpServer.route("/contention", SimpleHttpServer.TEXT_PLAIN, parameters -> getContentionWriter(contentionProfiler, parameters, "text"));
+            httpServer.route("/contention", JsonFormat.CONTENT_TYPE, parameters -> getContentionWriter(contentionProfiler, parameters, "json"));
+            httpServer.eventStream("/events", () -> getValues(arguments), Duration.ofSeconds(1));
             httpServer.start();
         }
         else {
-            System.out.println(getInfo(arguments));
+            getInfoWriter(arguments, format).writeTo(System.out);
+            System.out.println();
         }
     }
 
-    private static String getInfo(List<String> keys) {
-        if (keys.isEmpty()) {
-            return APP_INFO.prettyPrint();
+    /**
+     * @param format text, json or nested-json
+     */
+    private static ResponseWriter getInfoWriter(List<String> keys, String format) {
+        return getInfoWriter(getValues(keys), format);
+    }
+
+    /**
+     * Only the requested components are collected, the parameters are validated before anything is collected.
+     *
+     * @param parameters all of them are optional: name (comma separated component names, e.g.: {@code memory,thread}),
+     * keys (comma separated keys, they override the keys of the command line) and depth (thread stack depth)
+     * @param format text, json or nested-json
+     */
+    private static ResponseWriter getInfoWriter(Map<String, String> parameters, List<String> defaultKeys, String format) {
+        Set<AppInfoComponent> components = parameters.containsKey("name") ? AppInfoComponent.of(split(parameters.get("name"))) : defaultComponents;
+        List<String> keys = parameters.containsKey("keys") ? split(parameters.get("keys")) : defaultKeys;
+        int threadStackDepth = getInt(parameters, "depth", appInfo.getThreadStackDepth());
+        return getInfoWriter(appInfo.getValues(components, keys, threadStackDepth), format);
+    }
+
+    private static ResponseWriter getInfoWriter(Map<String, PropertyValue> values, String format) {
+        return switch (format) {
+            case "text" -> out -> TextFormat.write(values, out);
+            case "json" -> out -> JsonFormat.write(values, out);
+            case "nested-json" -> out -> JsonFormat.writeNested(values, out);
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+    }
+
+    private static ResponseWriter getMetricsWriter() {
+        Map<String, PropertyValue> values = appInfo.getValues(OpenMetricsFormat.COMPONENTS, OpenMetricsFormat.KEYS, appInfo.getThreadStackDepth());
+        return out -> OpenMetricsFormat.write(values, out);
+    }
+
+    private static ResponseWriter getHistoryWriter(HistorySampler historySampler) {
+        History history = historySampler.getHistory();
+        return out -> JsonFormat.write(history, out);
+    }
+
+    /**
+     * @param parameters seconds, intervalMillis and mode (cpu or wall), all of them are optional
+     */
+    private static ResponseWriter getProfileWriter(SamplingProfiler profiler, Map<String, String> parameters) {
+        Duration duration = getDuration(parameters, "seconds", ChronoUnit.SECONDS, SamplingProfiler.DEFAULT_DURATION);
+        Duration interval = getDuration(parameters, "intervalMillis", ChronoUnit.MILLIS, SamplingProfiler.DEFAULT_INTERVAL);
+        SamplingProfiler.Mode mode = SamplingProfiler.Mode.of(parameters.getOrDefault("mode", "cpu"));
+        StackTrie stackTrie = profiler.profile(duration, interval, mode);
+        return stackTrie::writeCollapsed;
+    }
+
+    /**
+     * @param parameters seconds and intervalMillis, both of them are optional
+     * @param format text or json
+     */
+    private static ResponseWriter getContentionWriter(ContentionProfiler profiler, Map<String, String> parameters, String format) {
+        Duration duration = getDuration(parameters, "seconds", ChronoUnit.SECONDS, ContentionProfiler.DEFAULT_DURATION);
+        Duration interval = getDuration(parameters, "intervalMillis", ChronoUnit.MILLIS, ContentionProfiler.DEFAULT_INTERVAL);
+        Map<String, PropertyValue> values = profiler.profile(duration, interval);
+        return format.equals("json") ? out -> JsonFormat.write(values, out) : out -> TextFormat.write(values, out);
+    }
+
+    /**
+     * Prints the snapshots recorded by {@link SnapshotRecorder} with their timestamp ({@code snapshot.timestamp}),
+     * separated by an empty line (text) or one per line (json and nested-json).
+     *
+     * @param path a segment or a directory of segments
+     * @param format text, json or nested-json
+     */
+    private static void replay(Path path, String format) throws IOException {
+        PrintStream out = System.out;
+        SnapshotLog.read(path, snapshot -> {
+            Map<String, PropertyValue> values = new TreeMap<>(snapshot.values());
+            values.put("snapshot.timestamp", PropertyValue.of(Instant.ofEpochMilli(snapshot.timestamp())));
+            try {
+                getInfoWriter(values, format).writeTo(out);
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            out.println(format.equals("text") ? "\n" : "");
+        });
+        out.flush();
+    }
+
+    private static List<String> split(String values) {
+        return Arrays.stream(values.split(",")).map(String::trim).filter(value -> !value.isEmpty()).toList();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the parameter is not a number, the server answers it with {@code 400}
+     */
+    private static int getInt(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
         }
-        else {
-            return APP_INFO.prettyPrint(keys);
+        catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value, exception);
         }
     }
+
+    /**
+     * @throws IllegalArgumentException if the parameter is not a number, the server answers it with {@code 400}
+     */
+    private static Duration getDuration(Map<String, String> parameters, String name, ChronoUnit unit, Duration defaultValue) {
+        String value = parameters.get(name);
+        try {
+            return value != null ? Duration.of(Long.parseLong(value), unit) : defaultValue;
+        }
+        catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value, exception);
+        }
+    }
+
+    /**
+     * @param keys empty means all the properties of the default components
+     */
+    private static Map<String, PropertyValue> getValues(List<String> keys) {
+        return appInfo.getValues(defaultComponents, keys, appInfo.getThreadStackDepth());
+    }
 }
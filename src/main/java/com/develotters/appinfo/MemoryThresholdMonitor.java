@@ -0,0 +1,372 @@
+package com.develotters.appinfo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Sets the usage and collection usage thresholds of the memory pools (as a percentage of their max size) and listens to
+ * the notifications the JVM sends when a pool crosses them, so memory pressure is caught when it happens not when it is polled.
+ * The usage threshold is checked by the JVM while the application runs, the collection usage threshold is checked
+ * after a GC (the usage that could not be reclaimed). A notification is sent when the threshold is crossed,
+ * the pool needs to go below the threshold and cross it again for the next one.
+ * The last {@link #DEFAULT_CAPACITY} events are kept (with the usage of the pool at the time of crossing) and
+ * a {@link Capture} can be taken when the threshold is crossed, at most one at a time and at most once in {@link #MIN_CAPTURE_INTERVAL_MILLIS}
+ * (measured from the end of the previous one) since a heap histogram needs a full GC that can trigger another notification.
+ * Pools without a max size (e.g.: Metaspace by default) and pools that do not support thresholds are skipped.
+ * The thresholds are JVM-wide, the previous values are restored when the monitor is closed.
+ * Memory pools are indexed the same way as in the {@link AppInfoComponent#MEMORY} component.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class MemoryThresholdMonitor implements NotificationListener, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 100;
+    static final long MIN_CAPTURE_INTERVAL_MILLIS = 60_000;
+
+    private final double usageThreshold;
+    private final double collectionUsageThreshold;
+    private final Capture capture;
+    private final int capacity;
+    private final List<MemoryPoolMXBean> memoryPoolMXBeans = ManagementFactory.getMemoryPoolMXBeans();
+    private final long[] usageThresholds = new long[memoryPoolMXBeans.size()];
+    private final long[] collectionUsageThresholds = new long[memoryPoolMXBeans.size()];
+    private final long[] previousUsageThresholds = new long[memoryPoolMXBeans.size()];
+    private final long[] previousCollectionUsageThresholds = new long[memoryPoolMXBeans.size()];
+    private final Deque<Event> events = new ArrayDeque<>();
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicBoolean capturing = new AtomicBoolean();
+    private volatile long lastCaptureFinishedAt;
+    private boolean started;
+
+    public MemoryThresholdMonitor(double usageThreshold, double collectionUsageThreshold, Capture capture) {
+        this(usageThreshold, collectionUsageThreshold, capture, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param usageThreshold the usage threshold in percent of the max size of the pools, 0 disables it
+     * @param collectionUsageThreshold the collection usage threshold in percent of the max size of the pools, 0 disables it
+     * @param capture what to capture when a threshold is crossed
+     * @param capacity the number of events to keep, the oldest ones are dropped
+     */
+    public MemoryThresholdMonitor(double usageThreshold, double collectionUsageThreshold, Capture capture, int capacity) {
+        if (usageThreshold < 0 || usageThreshold > 100 || collectionUsageThreshold < 0 || collectionUsageThreshold > 100) {
+            throw new IllegalArgumentException("Thresholds must be between 0 and 100: " + usageThreshold + ", " + collectionUsageThreshold);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.usageThreshold = usageThreshold;
+        this.collectionUsageThreshold = collectionUsageThreshold;
+        this.capture = capture;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Sets the thresholds and starts listening to the notifications.
+     */
+    public synchronized MemoryThresholdMonitor start() {
+        if (started) {
+            return this;
+        }
+
+        for (int i = 0; i < memoryPoolMXBeans.size(); i++) {
+            MemoryPoolMXBean memoryPoolMXBean = memoryPoolMXBeans.get(i);
+            long max = getMax(memoryPoolMXBean);
+            if (usageThreshold > 0 && max > 0 && memoryPoolMXBean.isUsageThresholdSupported()) {
+                previousUsageThresholds[i] = memoryPoolMXBean.getUsageThreshold();
+                usageThresholds[i] = toBytes(usageThreshold, max);
+                memoryPoolMXBean.setUsageThreshold(usageThresholds[i]);
+            }
+            if (collectionUsageThreshold > 0 && max > 0 && memoryPoolMXBean.isCollectionUsageThresholdSupported()) {
+                previousCollectionUsageThresholds[i] = memoryPoolMXBean.getCollectionUsageThreshold();
+                collectionUsageThresholds[i] = toBytes(collectionUsageThreshold, max);
+                memoryPoolMXBean.setCollectionUsageThreshold(collectionUsageThresholds[i]);
+            }
+        }
+
+        if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter emitter) {
+            emitter.addNotificationListener(this, MemoryThresholdMonitor::isThresholdNotification, null);
+        }
+        started = true;
+
+        return this;
+    }
+
+    /**
+     * Stops listening to the notifications and restores the previous thresholds.
+     */
+    @Override
+    public synchronized void close() {
+        if (!started) {
+            return;
+        }
+
+        if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter emitter) {
+            try {
+                emitter.removeNotificationListener(this);
+            }
+            catch (ListenerNotFoundException exception) {
+                // swallow the error :( it was not added
+            }
+        }
+
+        for (int i = 0; i < memoryPoolMXBeans.size(); i++) {
+            if (usageThresholds[i] > 0) {
+                memoryPoolMXBeans.get(i).setUsageThreshold(previousUsageThresholds[i]);
+                usageThresholds[i] = 0;
+            }
+            if (collectionUsageThresholds[i] > 0) {
+                memoryPoolMXBeans.get(i).setCollectionUsageThreshold(previousCollectionUsageThresholds[i]);
+                collectionUsageThresholds[i] = 0;
+            }
+        }
+        started = false;
+    }
+
+    private static long getMax(MemoryPoolMXBean memoryPoolMXBean) {
+        MemoryUsage usage = memoryPoolMXBean.getUsage();
+        return usage != null ? usage.getMax() : -1;
+    }
+
+    /**
+     * The threshold is at least 1 byte since 0 disables it.
+     */
+    private static long toBytes(double percent, long max) {
+        return Math.max(1, (long) (max * percent / 100));
+    }
+
+    private static boolean isThresholdNotification(Notification notification) {
+        return MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(notification.getType())
+            || MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType());
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        try {
+            MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+            boolean collection = MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType());
+            int index = indexOf(info.getPoolName());
+            long threshold = index < 0 ? -1 : collection ? collectionUsageThresholds[index] : usageThresholds[index];
+            Event event = new Event(notification.getTimeStamp(), collection ? "collectionUsage" : "usage", index, info.getPoolName(), info.getUsage(), threshold, info.getCount());
+            record(event);
+            startCapture(event);
+        }
+        catch (Throwable throwable) {
+            // swallow the error :( the notification thread must not be disturbed
+        }
+    }
+
+    private int indexOf(String poolName) {
+        for (int i = 0; i < memoryPoolMXBeans.size(); i++) {
+            if (memoryPoolMXBeans.get(i).getName().equals(poolName)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void record(Event event) {
+        synchronized (events) {
+            if (events.size() == capacity) {
+                events.removeLast();
+            }
+            events.addFirst(event);
+        }
+        eventCount.incrementAndGet();
+    }
+
+    /**
+     * Captures on a background thread so that the notification thread is not blocked.
+     */
+    private void startCapture(Event event) {
+        if (capture == Capture.NONE) {
+            return;
+        }
+
+        if (System.currentTimeMillis() - lastCaptureFinishedAt >= MIN_CAPTURE_INTERVAL_MILLIS && capturing.compareAndSet(false, true)) {
+            Thread.ofPlatform().name("app-info-memory-threshold-capture").daemon().start(() -> capture(event));
+        }
+        else {
+            event.captureSkipped = true;
+        }
+    }
+
+    private void capture(Event event) {
+        long start = System.currentTimeMillis();
+        try {
+            String captured = capture.take();
+            if (captured != null) {
+                event.capture = captured;
+            }
+            else {
+                event.captureSkipped = true;
+            }
+        }
+        catch (Throwable throwable) {
+            event.capture = String.valueOf(throwable);
+        }
+        finally {
+            event.captureDuration = System.currentTimeMillis() - start;
+            lastCaptureFinishedAt = System.currentTimeMillis();
+            capturing.set(false);
+        }
+    }
+
+    /**
+     * @return the thresholds ({@code memoryThreshold.pool.#.*}, in bytes) and the events ({@code memoryThreshold.event.#.*}, the latest one first)
+     */
+    public Map<String, PropertyValue> getValues() {
+        Map<String, PropertyValue> props = new TreeMap<>();
+        addProperties(props);
+        return props;
+    }
+
+    void addProperties(Map<String, PropertyValue> props) {
+        props.put("memoryThreshold.usageThreshold", PropertyValue.of(usageThreshold));
+        props.put("memoryThreshold.collectionUsageThreshold", PropertyValue.of(collectionUsageThreshold));
+        props.put("memoryThreshold.capture", PropertyValue.of(capture.name()));
+        props.put("memoryThreshold.eventCount", PropertyValue.of(eventCount.get()));
+        for (int i = 0; i < memoryPoolMXBeans.size(); i++) {
+            if (usageThresholds[i] > 0 || collectionUsageThresholds[i] > 0) {
+                props.put("memoryThreshold.pool." + i + ".name", PropertyValue.of(memoryPoolMXBeans.get(i).getName()));
+                props.put("memoryThreshold.pool." + i + ".usageThreshold", PropertyValue.of(usageThresholds[i]));
+                props.put("memoryThreshold.pool." + i + ".collectionUsageThreshold", PropertyValue.of(collectionUsageThresholds[i]));
+            }
+        }
+
+        List<Event> snapshot;
+        synchronized (events) {
+            snapshot = new ArrayList<>(events);
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            snapshot.get(i).addProperties("memoryThreshold.event." + i + ".", props);
+        }
+    }
+
+    /**
+     * What to capture when a threshold is crossed.
+     */
+    public enum Capture {
+        NONE,
+
+        /**
+         * The top classes by size (class name, instances and bytes) with the {@code GC.class_histogram} diagnostic command, this needs a full GC.
+         * The histogram is taken by the same collector as the {@link AppInfoComponent#HEAP_HISTOGRAM} component so their limits are shared:
+         * the capture is skipped if a histogram is in progress or the last one was taken less than a minute ago.
+         */
+        HEAP_HISTOGRAM,
+
+        /**
+         * The stack traces of the threads (at most 8 frames each).
+         */
+        THREAD_DUMP;
+
+        /**
+         * @return null if there is nothing to capture or the capture was skipped
+         */
+        String take() {
+            return switch (this) {
+                case NONE -> null;
+                case HEAP_HISTOGRAM -> formatHistogram(HeapHistogramCollector.getInstance().tryTakeHistogram());
+                case THREAD_DUMP -> formatThreadDump(ManagementFactory.getThreadMXBean().dumpAllThreads(false, false));
+            };
+        }
+
+        private static String formatHistogram(HeapHistogramCollector.Histogram histogram) {
+            if (histogram == null) {
+                return null;
+            }
+            else if (histogram.error() != null) {
+                return histogram.error();
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (HeapHistogramCollector.Row row : histogram.topBySize()) {
+                sb.append(row.className()).append(' ').append(row.instances()).append(' ').append(row.bytes()).append('\n');
+            }
+
+            return sb.toString();
+        }
+
+        private static String formatThreadDump(ThreadInfo[] threadInfos) {
+            StringBuilder sb = new StringBuilder();
+            for (ThreadInfo threadInfo : threadInfos) {
+                sb.append(threadInfo);
+            }
+
+            return sb.toString();
+        }
+
+        /**
+         * @return the capture with the given name, case-insensitive, {@code -} can be used instead of {@code _}
+         */
+        public static Capture of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    /**
+     * A threshold crossing: the timestamp is the time of the crossing (epoch millis), the type is usage or collectionUsage,
+     * the pool index is -1 if the pool is not known. The capture is set by the capturing thread after the event was recorded.
+     */
+    private static final class Event {
+        private final long timestamp;
+        private final String type;
+        private final int poolIndex;
+        private final String poolName;
+        private final MemoryUsage usage;
+        private final long threshold;
+        private final long count;
+        private volatile String capture;
+        private volatile long captureDuration = -1;
+        private volatile boolean captureSkipped;
+
+        private Event(long timestamp, String type, int poolIndex, String poolName, MemoryUsage usage, long threshold, long count) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.poolIndex = poolIndex;
+            this.poolName = poolName;
+            this.usage = usage;
+            this.threshold = threshold;
+            this.count = count;
+        }
+
+        private void addProperties(String prefix, Map<String, PropertyValue> props) {
+            props.put(prefix + "timestamp", PropertyValue.of(timestamp));
+            props.put(prefix + "type", PropertyValue.of(type));
+            props.put(prefix + "pool", PropertyValue.of(poolIndex));
+            props.put(prefix + "poolName", PropertyValue.of(poolName));
+            props.put(prefix + "used", PropertyValue.of(usage.getUsed()));
+            props.put(prefix + "committed", PropertyValue.of(usage.getCommitted()));
+            props.put(prefix + "max", PropertyValue.of(usage.getMax()));
+            props.put(prefix + "threshold", PropertyValue.of(threshold));
+            props.put(prefix + "count", PropertyValue.of(count));
+            if (captureSkipped) {
+                props.put(prefix + "captureSkipped", PropertyValue.TRUE);
+            }
+            String captured = capture;
+            if (captured != null) {
+                props.put(prefix + "capture", PropertyValue.of(captured));
+                props.put(prefix + "captureDuration", PropertyValue.of(captureDuration));
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.develotters.appinfo;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.management.ObjectName;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * Reads the memory the JVM uses outside the heap: the buffer pools (direct and mapped buffers) and,
+ * if Native Memory Tracking is enabled ({@code -XX:NativeMemoryTracking=summary}), the reserved and committed memory
+ * by category (e.g.: Class, Thread, Code, GC) from the summary of the {@code VM.native_memory} diagnostic command.
+ * Running the diagnostic command is not free so its result is cached for {@link #NMT_MIN_INTERVAL_MILLIS}
+ * regardless of how often the component is collected. There is only one instance per JVM.
+ *
+ * @author Jonatan Ivanov
+ */
+final class NativeMemoryReader {
+    private static final long NMT_MIN_INTERVAL_MILLIS = 10_000;
+    private static final Pattern TOTAL = Pattern.compile("^Total: reserved=(\\d+), committed=(\\d+)");
+    private static final Pattern CATEGORY = Pattern.compile("^-\\s*(.+?) \\(reserved=(\\d+), committed=(\\d+)\\)");
+    private static volatile NativeMemoryReader instance;
+
+    private final boolean nmtEnabled;
+    private NmtSummary lastSummary;
+
+    private NativeMemoryReader() {
+        this.nmtEnabled = isNmtEnabled();
+    }
+
+    static NativeMemoryReader getInstance() {
+        NativeMemoryReader result = instance;
+        if (result == null) {
+            synchronized (NativeMemoryReader.class) {
+                result = instance;
+                if (result == null) {
+                    result = new NativeMemoryReader();
+                    instance = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isNmtEnabled() {
+        try {
+            HotSpotDiagnosticMXBean diagnosticMXBean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return !"off".equals(diagnosticMXBean.getVMOption("NativeMemoryTracking").getValue());
+        }
+        catch (Throwable throwable) {
+            // swallow the error :( e.g.: not a HotSpot JVM
+            Instrumentation.recordSwallowed(throwable);
+            return false;
+        }
+    }
+
+    void addProperties(Map<String, PropertyValue> props) {
+        List<BufferPoolMXBean> bufferPoolMXBeans = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+        for (int i = 0; i < bufferPoolMXBeans.size(); i++) {
+            BufferPoolMXBean bufferPoolMXBean = bufferPoolMXBeans.get(i);
+            String prefix = "nativeMemory.bufferPool." + i + ".";
+            props.put(prefix + "name", PropertyValue.of(bufferPoolMXBean.getName()));
+            props.put(prefix + "count", PropertyValue.of(bufferPoolMXBean.getCount()));
+            props.put(prefix + "totalCapacity", PropertyValue.of(bufferPoolMXBean.getTotalCapacity()));
+            props.put(prefix + "memoryUsed", PropertyValue.of(bufferPoolMXBean.getMemoryUsed()));
+        }
+
+        props.put("nativeMemory.nmt.enabled", PropertyValue.of(nmtEnabled));
+        if (nmtEnabled) {
+            getNmtSummary().addProperties(props);
+        }
+    }
+
+    /**
+     * Callers that arrive while the summary is being read wait for it instead of running the command again.
+     */
+    private synchronized NmtSummary getNmtSummary() {
+        long now = System.currentTimeMillis();
+        if (lastSummary == null || now - lastSummary.collectedAt() >= NMT_MIN_INTERVAL_MILLIS) {
+            lastSummary = readNmtSummary(now);
+        }
+
+        return lastSummary;
+    }
+
+    private static NmtSummary readNmtSummary(long now) {
+        try {
+            Object output = ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                "vmNativeMemory",
+                new Object[] { new String[] { "summary", "scale=b" } },
+                new String[] { String[].class.getName() }
+            );
+            return parse(String.valueOf(output), now);
+        }
+        catch (Throwable throwable) {
+            return new NmtSummary(now, -1, -1, List.of(), String.valueOf(throwable));
+        }
+    }
+
+    /**
+     * @param output the output of {@code VM.native_memory summary scale=b}
+     */
+    static NmtSummary parse(String output, long collectedAt) {
+        long reserved = -1;
+        long committed = -1;
+        List<Category> categories = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            Matcher categoryMatcher = CATEGORY.matcher(line);
+            if (categoryMatcher.find()) {
+                categories.add(new Category(categoryMatcher.group(1), Long.parseLong(categoryMatcher.group(2)), Long.parseLong(categoryMatcher.group(3))));
+                continue;
+            }
+            Matcher totalMatcher = TOTAL.matcher(line);
+            if (totalMatcher.find()) {
+                reserved = Long.parseLong(totalMatcher.group(1));
+                committed = Long.parseLong(totalMatcher.group(2));
+            }
+        }
+
+        return new NmtSummary(collectedAt, reserved, committed, categories, reserved < 0 ? output.strip() : null);
+    }
+
+    /**
+     * @param collectedAt the time the summary was read (epoch millis)
+     * @param error the reason the summary is not available, null if it is
+     */
+    record NmtSummary(long collectedAt, long reserved, long committed, List<Category> categories, String error) {
+        private void addProperties(Map<String, PropertyValue> props) {
+            props.put("nativeMemory.nmt.collectedAt", PropertyValue.of(collectedAt));
+            if (error != null) {
+                props.put("nativeMemory.nmt.error", PropertyValue.of(error));
+                return;
+            }
+
+            props.put("nativeMemory.nmt.total.reserved", PropertyValue.of(reserved));
+            props.put("nativeMemory.nmt.total.committed", PropertyValue.of(committed));
+            for (int i = 0; i < categories.size(); i++) {
+                String prefix = "nativeMemory.nmt." + i + ".";
+                props.put(prefix + "category", PropertyValue.of(categories.get(i).name()));
+                props.put(prefix + "reserved", PropertyValue.of(categories.get(i).reserved()));
+                props.put(prefix + "committed", PropertyValue.of(categories.get(i).committed()));
+            }
+        }
+    }
+
+    record Category(String name, long reserved, long committed) {
+    }
+}
@@ -0,0 +1,142 @@
+package com.develotters.appinfo;
+
+import java.util.Arrays;
+
+/**
+ * The value of a property, numbers and booleans are kept as primitives, everything else is kept as is
+ * and converted to a {@link String} only when (and if) {@link #asString()} is called.
+ *
+ * @author Jonatan Ivanov
+ */
+public sealed interface PropertyValue permits PropertyValue.LongValue, PropertyValue.DoubleValue, PropertyValue.BooleanValue, PropertyValue.ObjectValue {
+    PropertyValue NULL = new ObjectValue(null);
+    PropertyValue TRUE = new BooleanValue(true);
+    PropertyValue FALSE = new BooleanValue(false);
+
+    static PropertyValue of(long value) {
+        return new LongValue(value);
+    }
+
+    static PropertyValue of(double value) {
+        return new DoubleValue(value);
+    }
+
+    static PropertyValue of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Boxed numbers and booleans are unboxed, everything else is wrapped as is.
+     */
+    static PropertyValue of(Object value) {
+        if (value == null) return NULL;
+        else if (value instanceof PropertyValue propertyValue) return propertyValue;
+        else if (value instanceof Long number) return of(number.longValue());
+        else if (value instanceof Integer number) return of(number.longValue());
+        else if (value instanceof Short number) return of(number.longValue());
+        else if (value instanceof Byte number) return of(number.longValue());
+        else if (value instanceof Double number) return of(number.doubleValue());
+        else if (value instanceof Float number) return of(number.doubleValue());
+        else if (value instanceof Boolean bool) return of(bool.booleanValue());
+        else return new ObjectValue(value);
+    }
+
+    String asString();
+
+    record LongValue(long value) implements PropertyValue {
+        @Override
+        public String asString() {
+            return Long.toString(value);
+        }
+
+        @Override
+        public String toString() {
+            return asString();
+        }
+    }
+
+    record DoubleValue(double value) implements PropertyValue {
+        @Override
+        public String asString() {
+            return Double.toString(value);
+        }
+
+        @Override
+        public String toString() {
+            return asString();
+        }
+    }
+
+    record BooleanValue(boolean value) implements PropertyValue {
+        @Override
+        public String asString() {
+            return Boolean.toString(value);
+        }
+
+        @Override
+        public String toString() {
+            return asString();
+        }
+    }
+
+    /**
+     * Structured values (e.g.: {@link java.lang.management.MemoryUsage}, {@link java.lang.management.ThreadInfo}, arrays),
+     * the string representation is created on first use and reused after that.
+     */
+    final class ObjectValue implements PropertyValue {
+        private final Object value;
+        private String string;
+
+        private ObjectValue(Object value) {
+            this.value = value;
+        }
+
+        public Object value() {
+            return value;
+        }
+
+        @Override
+        public String asString() {
+            String result = string;
+            if (result == null) {
+                result = toString(value);
+                string = result;
+            }
+
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ObjectValue objectValue && asString().equals(objectValue.asString());
+        }
+
+        @Override
+        public int hashCode() {
+            return asString().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return asString();
+        }
+
+        private static String toString(Object object) {
+            if (object != null && object.getClass().isArray()) {
+                Class<?> clazz = object.getClass();
+                if (clazz == byte[].class) return Arrays.toString((byte[]) object);
+                else if (clazz == short[].class) return Arrays.toString((short[]) object);
+                else if (clazz == int[].class) return Arrays.toString((int[]) object);
+                else if (clazz == long[].class) return Arrays.toString((long[]) object);
+                else if (clazz == char[].class) return Arrays.toString((char[]) object);
+                else if (clazz == float[].class) return Arrays.toString((float[]) object);
+                else if (clazz == double[].class) return Arrays.toString((double[]) object);
+                else if (clazz == boolean[].class) return Arrays.toString((boolean[]) object);
+                else return Arrays.deepToString((Object[]) object);
+            }
+            else {
+                return String.valueOf(object);
+            }
+        }
+    }
+}
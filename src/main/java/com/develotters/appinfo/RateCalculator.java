@@ -0,0 +1,184 @@
+package com.develotters.appinfo;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps recent samples of the counters and reports how fast they changed over the last {@link #WINDOW} (see {@link SampleWindow})
+ * so the result does not depend on how often and by how many callers the rates are collected:
+ * percentages of the wall time (GC, JIT, CPU) and per second rates (class loading, allocation).
+ * The state of the counters at the start of the JVM is the first sample so the first call reports the averages since the JVM started.
+ * Threads that were not alive at the earlier sample are measured since they started.
+ *
+ * @author Jonatan Ivanov
+ */
+final class RateCalculator {
+    static final Duration WINDOW = Duration.ofSeconds(10);
+
+    private final List<GarbageCollectorMXBean> gcMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private final OperatingSystemMXBean osMXBean = ManagementFactory.getOperatingSystemMXBean();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final SampleWindow<Sample> samples = new SampleWindow<>(WINDOW, Sample::nanoTime);
+
+    synchronized void addRates(Map<String, PropertyValue> props) {
+        if (samples.isEmpty()) {
+            samples.add(startSample());
+        }
+        Sample current = sample();
+        Sample previous = samples.advance(current);
+        double seconds = (current.nanoTime() - previous.nanoTime()) / 1e9;
+        compare(previous, current, seconds, props);
+    }
+
+    private void compare(Sample previous, Sample current, double seconds, Map<String, PropertyValue> props) {
+        if (seconds <= 0) {
+            return;
+        }
+
+        props.put("rate.interval", PropertyValue.of(Math.round(seconds * 1000)));
+
+        long totalGcTime = 0;
+        boolean gcTimeSupported = true;
+        for (int i = 0; i < current.gcTimes().length; i++) {
+            long gcTime = delta(previous.gcTimes()[i], current.gcTimes()[i]);
+            props.put("rate.gc." + i + ".overhead", percentOfWallTime(gcTime / 1e3, seconds));
+            totalGcTime += gcTime;
+            gcTimeSupported &= gcTime >= 0;
+        }
+        props.put("rate.gc.overhead", percentOfWallTime(gcTimeSupported ? totalGcTime / 1e3 : -1, seconds));
+        props.put("rate.compilation.overhead", percentOfWallTime(delta(previous.compilationTime(), current.compilationTime()) / 1e3, seconds));
+
+        long processCpuTime = delta(previous.processCpuTime(), current.processCpuTime());
+        props.put("rate.process.cpuUsage", percentOfWallTime(processCpuTime / 1e9, seconds * current.availableProcessors()));
+        for (int i = 0; i < current.threadIds().length; i++) {
+            int previousIndex = Arrays.binarySearch(previous.threadIds(), current.threadIds()[i]);
+            long previousCpuTime = previousIndex >= 0 ? previous.threadCpuTimes()[previousIndex] : 0;
+            long threadCpuTime = delta(previousCpuTime, current.threadCpuTimes()[i]);
+            props.put("rate.thread." + current.threadIds()[i] + ".cpuUsage", percentOfWallTime(threadCpuTime / 1e9, seconds));
+        }
+
+        props.put("rate.classLoading.loadRate", perSecond(delta(previous.totalLoadedClassCount(), current.totalLoadedClassCount()), seconds));
+        props.put("rate.classLoading.unloadRate", perSecond(delta(previous.unloadedClassCount(), current.unloadedClassCount()), seconds));
+        props.put("rate.memory.allocationRate", perSecond(delta(previous.allocatedBytes(), current.allocatedBytes()), seconds));
+    }
+
+    /**
+     * @return the difference of the counters or -1 if any of them is not available (negative)
+     */
+    private static long delta(long previous, long current) {
+        return previous >= 0 && current >= 0 ? current - previous : -1;
+    }
+
+    /**
+     * @param time the time spent (in seconds), negative if not available
+     * @param seconds the wall time
+     */
+    private static PropertyValue percentOfWallTime(double time, double seconds) {
+        return time >= 0 ? PropertyValue.of(time / seconds * 100) : PropertyValue.NULL;
+    }
+
+    private static PropertyValue perSecond(long delta, double seconds) {
+        return delta >= 0 ? PropertyValue.of(delta / seconds) : PropertyValue.NULL;
+    }
+
+    /**
+     * The state of the counters when the JVM started.
+     */
+    private Sample startSample() {
+        long uptimeNanos = safelyGet(() -> ManagementFactory.getRuntimeMXBean().getUptime()) * 1_000_000;
+        return new Sample(
+            System.nanoTime() - Math.max(0, uptimeNanos),
+            new long[gcMXBeans.size()],
+            0,
+            new long[0],
+            new long[0],
+            0,
+            0,
+            0,
+            0,
+            osMXBean.getAvailableProcessors()
+        );
+    }
+
+    private Sample sample() {
+        long[] gcTimes = new long[gcMXBeans.size()];
+        for (int i = 0; i < gcTimes.length; i++) {
+            gcTimes[i] = safelyGet(gcMXBeans.get(i)::getCollectionTime);
+        }
+
+        long[] threadIds = threadMXBean.getAllThreadIds();
+        Arrays.sort(threadIds);
+        long[] threadCpuTimes = getThreadCpuTimes(threadIds);
+
+        return new Sample(
+            System.nanoTime(),
+            gcTimes,
+            osMXBean instanceof com.sun.management.OperatingSystemMXBean extendedOsMXBean ? safelyGet(extendedOsMXBean::getProcessCpuTime) : -1,
+            threadIds,
+            threadCpuTimes,
+            safelyGet(() -> ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount()),
+            safelyGet(() -> ManagementFactory.getClassLoadingMXBean().getUnloadedClassCount()),
+            safelyGet(() -> ManagementFactory.getCompilationMXBean().getTotalCompilationTime()),
+            threadMXBean instanceof com.sun.management.ThreadMXBean extendedThreadMXBean ? safelyGet(extendedThreadMXBean::getTotalThreadAllocatedBytes) : -1,
+            osMXBean.getAvailableProcessors()
+        );
+    }
+
+    /**
+     * @return the CPU times in the order of the ids, -1 if the CPU time of a thread is not available
+     */
+    private long[] getThreadCpuTimes(long[] threadIds) {
+        try {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean extendedThreadMXBean) {
+                return extendedThreadMXBean.getThreadCpuTime(threadIds);
+            }
+            else {
+                return Arrays.stream(threadIds).map(threadMXBean::getThreadCpuTime).toArray();
+            }
+        }
+        catch (Throwable throwable) {
+            // swallow the error :(
+            Instrumentation.recordSwallowed(throwable);
+            long[] cpuTimes = new long[threadIds.length];
+            Arrays.fill(cpuTimes, -1);
+            return cpuTimes;
+        }
+    }
+
+    /**
+     * @return the value or -1 if it is not available
+     */
+    private static long safelyGet(LongSupplier supplier) {
+        try {
+            return supplier.getAsLong();
+        }
+        catch (Throwable throwable) {
+            // swallow the error :(
+            Instrumentation.recordSwallowed(throwable);
+            return -1;
+        }
+    }
+
+    /**
+     * Counters are -1 if they are not available, the thread ids are sorted.
+     */
+    private record Sample(
+        long nanoTime,
+        long[] gcTimes,
+        long processCpuTime,
+        long[] threadIds,
+        long[] threadCpuTimes,
+        long totalLoadedClassCount,
+        long unloadedClassCount,
+        long compilationTime,
+        long allocatedBytes,
+        int availableProcessors) {
+    }
+}
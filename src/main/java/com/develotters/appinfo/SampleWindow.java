@@ -0,0 +1,70 @@
+package com.develotters.appinfo;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps a few recent samples of counters so that the current sample can be compared to the one taken about a fixed window ago,
+ * no matter how often and by how many callers the counters are sampled. A sample is only kept if the newest kept sample is at least
+ * {@code window / RESOLUTION} older, and the samples that are older than the one that is closest to the start of the window are dropped,
+ * so at most about {@code RESOLUTION + 2} samples are kept.
+ *
+ * @author Jonatan Ivanov
+ */
+final class SampleWindow<T> {
+    static final int RESOLUTION = 10;
+
+    private final long windowNanos;
+    private final ToLongFunction<T> nanoTime;
+    private final Deque<T> samples = new ArrayDeque<>();
+
+    /**
+     * @param window the time the samples are compared over
+     * @param nanoTime the time of a sample ({@link System#nanoTime()})
+     */
+    SampleWindow(Duration window, ToLongFunction<T> nanoTime) {
+        this.windowNanos = window.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    boolean isEmpty() {
+        return samples.isEmpty();
+    }
+
+    int size() {
+        return samples.size();
+    }
+
+    /**
+     * Adds a sample without comparing it to anything (e.g.: the state of the counters when the JVM started).
+     */
+    void add(T sample) {
+        samples.addLast(sample);
+    }
+
+    /**
+     * Adds the current sample and selects the sample it should be compared to: the one that was taken closest to
+     * {@code window} before it.
+     *
+     * @return null if there are no samples that were taken before the current one
+     */
+    T advance(T current) {
+        long start = nanoTime.applyAsLong(current) - windowNanos;
+        T baseline = samples.pollFirst();
+        while (!samples.isEmpty() && Math.abs(nanoTime.applyAsLong(samples.peekFirst()) - start) <= Math.abs(nanoTime.applyAsLong(baseline) - start)) {
+            baseline = samples.pollFirst();
+        }
+        if (baseline != null) {
+            samples.addFirst(baseline);
+        }
+
+        T newest = samples.peekLast();
+        if (newest == null || nanoTime.applyAsLong(current) - nanoTime.applyAsLong(newest) >= windowNanos / RESOLUTION) {
+            samples.addLast(current);
+        }
+
+        return baseline;
+    }
+}
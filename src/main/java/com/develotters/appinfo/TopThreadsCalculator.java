@@ -0,0 +1,194 @@
+package com.develotters.appinfo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Ranks the threads by how much CPU time they used and how many bytes they allocated over the last {@link RateCalculator#WINDOW}
+ * (see {@link SampleWindow}) so that the busiest threads can be found without dumping all of them. Only the counters are read for every thread,
+ * names and states are looked up for the selected threads only.
+ * The start of the JVM is the first sample (threads are measured since they started).
+ *
+ * @author Jonatan Ivanov
+ */
+final class TopThreadsCalculator {
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final int count;
+    private final SampleWindow<Sample> samples = new SampleWindow<>(RateCalculator.WINDOW, Sample::nanoTime);
+
+    /**
+     * @param count the number of threads to report in each ranking
+     */
+    TopThreadsCalculator(int count) {
+        this.count = count;
+    }
+
+    synchronized void addTopThreads(Map<String, PropertyValue> props) {
+        if (samples.isEmpty()) {
+            long uptimeNanos = ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000;
+            samples.add(new Sample(System.nanoTime() - uptimeNanos, new long[0], new long[0], new long[0]));
+        }
+
+        long[] threadIds = threadMXBean.getAllThreadIds();
+        Arrays.sort(threadIds);
+        Sample current = new Sample(System.nanoTime(), threadIds, getThreadCpuTimes(threadIds), getThreadAllocatedBytes(threadIds));
+        Sample previous = samples.advance(current);
+        double seconds = (current.nanoTime() - previous.nanoTime()) / 1e9;
+        if (seconds <= 0) {
+            return;
+        }
+
+        long[] cpuTimes = deltas(previous.threadIds(), previous.cpuTimes(), current.threadIds(), current.cpuTimes());
+        long[] allocatedBytes = deltas(previous.threadIds(), previous.allocatedBytes(), current.threadIds(), current.allocatedBytes());
+        int[] topCpu = top(cpuTimes, count);
+        int[] topAllocation = top(allocatedBytes, count);
+        Map<Long, ThreadInfo> threadInfos = getThreadInfos(threadIds, topCpu, topAllocation);
+
+        props.put("topThreads.interval", PropertyValue.of(Math.round(seconds * 1000)));
+        for (int i = 0; i < topCpu.length; i++) {
+            String prefix = "topThreads.cpu." + i + ".";
+            addThread(prefix, threadIds[topCpu[i]], threadInfos, props);
+            props.put(prefix + "cpuTime", PropertyValue.of(cpuTimes[topCpu[i]]));
+            props.put(prefix + "cpuUsage", PropertyValue.of(cpuTimes[topCpu[i]] / 1e9 / seconds * 100));
+        }
+        for (int i = 0; i < topAllocation.length; i++) {
+            String prefix = "topThreads.allocation." + i + ".";
+            addThread(prefix, threadIds[topAllocation[i]], threadInfos, props);
+            props.put(prefix + "allocatedBytes", PropertyValue.of(allocatedBytes[topAllocation[i]]));
+            props.put(prefix + "allocationRate", PropertyValue.of(allocatedBytes[topAllocation[i]] / seconds));
+        }
+    }
+
+    private static void addThread(String prefix, long threadId, Map<Long, ThreadInfo> threadInfos, Map<String, PropertyValue> props) {
+        ThreadInfo threadInfo = threadInfos.get(threadId);
+        props.put(prefix + "id", PropertyValue.of(threadId));
+        props.put(prefix + "name", threadInfo != null ? PropertyValue.of(threadInfo.getThreadName()) : PropertyValue.NULL);
+        props.put(prefix + "state", threadInfo != null ? PropertyValue.of(threadInfo.getThreadState().name()) : PropertyValue.NULL);
+    }
+
+    /**
+     * @return the differences in the order of the current ids, threads that were not alive at the previous sample
+     * are compared to 0, -1 if a counter is not available
+     */
+    private static long[] deltas(long[] previousIds, long[] previousValues, long[] currentIds, long[] currentValues) {
+        long[] deltas = new long[currentIds.length];
+        for (int i = 0; i < currentIds.length; i++) {
+            int previousIndex = Arrays.binarySearch(previousIds, currentIds[i]);
+            long previousValue = previousIndex >= 0 ? previousValues[previousIndex] : 0;
+            deltas[i] = previousValue >= 0 && currentValues[i] >= 0 ? currentValues[i] - previousValue : -1;
+        }
+
+        return deltas;
+    }
+
+    /**
+     * Selects the indices of the largest positive values with a min-heap of the given size
+     * so that the cost is {@code O(n log(count))} instead of sorting all the values.
+     *
+     * @return the indices of the largest values, the largest first
+     */
+    static int[] top(long[] values, int count) {
+        if (count == 0) {
+            return new int[0];
+        }
+
+        PriorityQueue<Integer> heap = new PriorityQueue<>(count + 1, Comparator.comparingLong(index -> values[index]));
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] > 0 && (heap.size() < count || values[i] > values[heap.peek()])) {
+                heap.add(i);
+                if (heap.size() > count) {
+                    heap.poll();
+                }
+            }
+        }
+
+        int[] indices = new int[heap.size()];
+        for (int i = indices.length - 1; i >= 0; i--) {
+            indices[i] = heap.poll();
+        }
+
+        return indices;
+    }
+
+    private Map<Long, ThreadInfo> getThreadInfos(long[] threadIds, int[] topCpu, int[] topAllocation) {
+        long[] selectedIds = new long[topCpu.length + topAllocation.length];
+        for (int i = 0; i < topCpu.length; i++) {
+            selectedIds[i] = threadIds[topCpu[i]];
+        }
+        for (int i = 0; i < topAllocation.length; i++) {
+            selectedIds[topCpu.length + i] = threadIds[topAllocation[i]];
+        }
+
+        Map<Long, ThreadInfo> threadInfos = new HashMap<>();
+        try {
+            for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(Arrays.stream(selectedIds).distinct().toArray(), 0)) {
+                // null if the thread is not alive anymore
+                if (threadInfo != null) {
+                    threadInfos.put(threadInfo.getThreadId(), threadInfo);
+                }
+            }
+        }
+        catch (Throwable throwable) {
+            // swallow the error :(
+            Instrumentation.recordSwallowed(throwable);
+        }
+
+        return threadInfos;
+    }
+
+    /**
+     * @return the CPU times in the order of the ids, -1 if the CPU time of a thread is not available
+     */
+    private long[] getThreadCpuTimes(long[] threadIds) {
+        try {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean extendedThreadMXBean) {
+                return extendedThreadMXBean.getThreadCpuTime(threadIds);
+            }
+            else {
+                return Arrays.stream(threadIds).map(threadMXBean::getThreadCpuTime).toArray();
+            }
+        }
+        catch (Throwable throwable) {
+            // swallow the error :(
+            Instrumentation.recordSwallowed(throwable);
+            return unavailable(threadIds.length);
+        }
+    }
+
+    /**
+     * @return the allocated bytes in the order of the ids, -1 if it is not available for a thread
+     */
+    private long[] getThreadAllocatedBytes(long[] threadIds) {
+        try {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean extendedThreadMXBean) {
+                return extendedThreadMXBean.getThreadAllocatedBytes(threadIds);
+            }
+            else {
+                return unavailable(threadIds.length);
+            }
+        }
+        catch (Throwable throwable) {
+            // swallow the error :(
+            Instrumentation.recordSwallowed(throwable);
+            return unavailable(threadIds.length);
+        }
+    }
+
+    private static long[] unavailable(int length) {
+        long[] values = new long[length];
+        Arrays.fill(values, -1);
+        return values;
+    }
+
+    /**
+     * Counters are -1 if they are not available, the thread ids are sorted.
+     */
+    private record Sample(long nanoTime, long[] threadIds, long[] cpuTimes, long[] allocatedBytes) {
+    }
+}
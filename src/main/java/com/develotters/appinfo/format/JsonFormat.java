@@ -0,0 +1,235 @@
+package com.develotters.appinfo.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.develotters.appinfo.PropertyValue;
+import com.develotters.appinfo.PropertyValue.BooleanValue;
+import com.develotters.appinfo.PropertyValue.DoubleValue;
+import com.develotters.appinfo.PropertyValue.LongValue;
+import com.develotters.appinfo.PropertyValue.ObjectValue;
+import com.develotters.appinfo.history.History;
+
+/**
+ * Writes the properties as a JSON object, either flat ({@code {"os.name": "Linux"}})
+ * or nested by the dotted key hierarchy ({@code {"os": {"name": "Linux"}}}).
+ * Numbers and booleans are written as JSON numbers and booleans, everything else as strings.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class JsonFormat {
+    public static final String CONTENT_TYPE = "application/json";
+
+    private JsonFormat() {
+    }
+
+    public static void write(Map<String, PropertyValue> values, OutputStream out) throws IOException {
+        Utf8Writer writer = new Utf8Writer(out);
+        writer.write('{');
+        boolean first = true;
+        for (Entry<String, PropertyValue> entry : values.entrySet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            writeString(writer, entry.getKey());
+            writer.write(':');
+            writeValue(writer, entry.getValue());
+            first = false;
+        }
+        writer.write('}');
+        writer.flush();
+    }
+
+    /**
+     * Writes the history column by column: {@code {"timestamps": [...], "thread.threadCount": [...]}}.
+     */
+    public static void write(History history, OutputStream out) throws IOException {
+        Utf8Writer writer = new Utf8Writer(out);
+        writer.write('{');
+        writeString(writer, "timestamps");
+        writer.write(':');
+        writeArray(writer, history.timestamps());
+        for (int i = 0; i < history.names().size(); i++) {
+            writer.write(',');
+            writeString(writer, history.names().get(i));
+            writer.write(':');
+            writeArray(writer, history.values()[i]);
+        }
+        writer.write('}');
+        writer.flush();
+    }
+
+    /**
+     * If a key is also the prefix of other keys (e.g.: {@code java.version} and {@code java.version.date}),
+     * its value is written into the nested object with an empty name: {@code {"java": {"version": {"": "25", "date": "2025-09-16"}}}}.
+     */
+    public static void writeNested(Map<String, PropertyValue> values, OutputStream out) throws IOException {
+        String[] keys = values.keySet().toArray(new String[0]);
+        Arrays.sort(keys, JsonFormat::compareKeys);
+
+        Utf8Writer writer = new Utf8Writer(out);
+        List<String> path = new ArrayList<>();
+        writer.write('{');
+        boolean first = true;
+        for (int i = 0; i < keys.length; i++) {
+            String key = keys[i];
+            int depth = commonDepth(path, key);
+            for (int j = path.size(); j > depth; j--) {
+                path.remove(j - 1);
+                writer.write('}');
+                first = false;
+            }
+
+            int start = segmentStart(key, depth);
+            int end = key.indexOf('.', start);
+            while (end >= 0) {
+                first = openObject(writer, first, key.substring(start, end), path);
+                start = end + 1;
+                end = key.indexOf('.', start);
+            }
+
+            String leaf = key.substring(start);
+            if (i + 1 < keys.length && isPrefix(key, keys[i + 1])) {
+                first = openObject(writer, first, leaf, path);
+                leaf = "";
+            }
+            if (!first) {
+                writer.write(',');
+            }
+            writeString(writer, leaf);
+            writer.write(':');
+            writeValue(writer, values.get(key));
+            first = false;
+        }
+        for (int j = path.size(); j > 0; j--) {
+            writer.write('}');
+        }
+        writer.write('}');
+        writer.flush();
+    }
+
+    /**
+     * Compares the keys as strings where '.' is smaller than any other character,
+     * this keeps keys that share the same parent next to each other.
+     */
+    private static int compareKeys(String first, String second) {
+        int length = Math.min(first.length(), second.length());
+        for (int i = 0; i < length; i++) {
+            char a = first.charAt(i);
+            char b = second.charAt(i);
+            if (a != b) {
+                if (a == '.') return -1;
+                else if (b == '.') return 1;
+                else return a - b;
+            }
+        }
+
+        return first.length() - second.length();
+    }
+
+    /**
+     * @return the number of leading segments the key shares with the current path, the last segment of the key is not counted
+     */
+    private static int commonDepth(List<String> path, String key) {
+        int depth = 0;
+        int start = 0;
+        for (String segment : path) {
+            int end = start + segment.length();
+            if (end >= key.length() || key.charAt(end) != '.' || !key.startsWith(segment, start)) {
+                break;
+            }
+            depth++;
+            start = end + 1;
+        }
+
+        return depth;
+    }
+
+    private static int segmentStart(String key, int depth) {
+        int start = 0;
+        for (int i = 0; i < depth; i++) {
+            start = key.indexOf('.', start) + 1;
+        }
+
+        return start;
+    }
+
+    private static boolean isPrefix(String key, String nextKey) {
+        return nextKey.length() > key.length() && nextKey.charAt(key.length()) == '.' && nextKey.startsWith(key);
+    }
+
+    private static boolean openObject(Utf8Writer writer, boolean first, String name, List<String> path) throws IOException {
+        if (!first) {
+            writer.write(',');
+        }
+        writeString(writer, name);
+        writer.write(":{");
+        path.add(name);
+
+        return true;
+    }
+
+    private static void writeValue(Utf8Writer writer, PropertyValue value) throws IOException {
+        if (value instanceof LongValue longValue) {
+            writer.write(longValue.value());
+        }
+        else if (value instanceof DoubleValue doubleValue && Double.isFinite(doubleValue.value())) {
+            writer.write(Double.toString(doubleValue.value()));
+        }
+        else if (value instanceof BooleanValue booleanValue) {
+            writer.write(booleanValue.value() ? "true" : "false");
+        }
+        else if (value == null || (value instanceof ObjectValue objectValue && objectValue.value() == null)) {
+            writer.write("null");
+        }
+        else {
+            writeString(writer, value.asString());
+        }
+    }
+
+    private static void writeArray(Utf8Writer writer, long[] values) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(values[i]);
+        }
+        writer.write(']');
+    }
+
+    private static void writeString(Utf8Writer writer, String string) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                case '\b' -> writer.write("\\b");
+                case '\f' -> writer.write("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write("\\u00").write(HEX_DIGITS[c >> 4]).write(HEX_DIGITS[c & 0xF]);
+                    }
+                    else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                        writer.writeCodePoint(Character.toCodePoint(c, string.charAt(++i)));
+                    }
+                    else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+}
@@ -0,0 +1,217 @@
+package com.develotters.appinfo.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import com.develotters.appinfo.AppInfoComponent;
+import com.develotters.appinfo.PropertyValue;
+import com.develotters.appinfo.PropertyValue.BooleanValue;
+import com.develotters.appinfo.PropertyValue.DoubleValue;
+import com.develotters.appinfo.PropertyValue.LongValue;
+import com.develotters.appinfo.PropertyValue.ObjectValue;
+
+/**
+ * Writes the numeric values in the <a href="https://openmetrics.io">OpenMetrics</a> text format.
+ * Indexed properties (e.g.: {@code gc.0.collectionCount}) are exported with the name of the indexed object as a label.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class OpenMetricsFormat {
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /**
+     * The components that are needed to create the metrics, the rest of them should not be collected
+     * (e.g.: {@link AppInfoComponent#NATIVE_MEMORY} runs Native Memory Tracking, {@link AppInfoComponent#RATE} advances its window).
+     */
+    public static final Set<AppInfoComponent> COMPONENTS = Collections.unmodifiableSet(EnumSet.of(
+        AppInfoComponent.RUNTIME, AppInfoComponent.CLASS_LOADING, AppInfoComponent.COMPILATION, AppInfoComponent.GARBAGE_COLLECTOR,
+        AppInfoComponent.MEMORY, AppInfoComponent.OPERATING_SYSTEM, AppInfoComponent.THREAD
+    ));
+
+    /**
+     * The keys that are needed to create the metrics, they can be used to filter the properties of {@link #COMPONENTS}.
+     * Keys are matched anywhere in the property names (e.g.: {@code gc.} matches {@code rate.gc.overhead}) so they should be used
+     * together with {@link #COMPONENTS}.
+     */
+    public static final List<String> KEYS = List.of(
+        "runtime.", "classLoading.", "compilation.", "gc.", "memory.", "memoryPool.", "os.", "thread."
+    );
+
+    private OpenMetricsFormat() {
+    }
+
+    public static void write(Map<String, PropertyValue> values, OutputStream out) throws IOException {
+        Utf8Writer writer = new Utf8Writer(out);
+        List<Sample> samples = new ArrayList<>();
+
+        metric(writer, samples, values, "gauge", "jvm_uptime_seconds", "Uptime of the JVM", "runtime.uptime", OpenMetricsFormat::millisToSeconds);
+        metric(writer, samples, values, "gauge", "jvm_available_processors", "Number of processors available to the JVM", "runtime.availableProcessors");
+        metric(writer, samples, values, "gauge", "jvm_runtime_free_memory_bytes", "Free memory in the JVM", "runtime.freeMemory");
+        metric(writer, samples, values, "gauge", "jvm_runtime_total_memory_bytes", "Total memory in the JVM", "runtime.totalMemory");
+        metric(writer, samples, values, "gauge", "jvm_runtime_max_memory_bytes", "Maximum memory the JVM will attempt to use", "runtime.maxMemory");
+
+        metric(writer, samples, values, "gauge", "jvm_classes_currently_loaded", "Number of classes currently loaded", "classLoading.loadedClassCount");
+        metric(writer, samples, values, "counter", "jvm_classes_loaded", "Number of classes loaded since the JVM started", "classLoading.totalLoadedClassCount");
+        metric(writer, samples, values, "counter", "jvm_classes_unloaded", "Number of classes unloaded since the JVM started", "classLoading.unloadedClassCount");
+        metric(writer, samples, values, "counter", "jvm_compilation_time_seconds", "Time spent in JIT compilation", "compilation.totalCompilationTime", OpenMetricsFormat::millisToSeconds);
+
+        indexed(writer, samples, values, "counter", "jvm_gc_collections", "Number of collections", "gc", "gc", "collectionCount", UnaryOperator.identity());
+        indexed(writer, samples, values, "counter", "jvm_gc_collection_time_seconds", "Time spent in collections", "gc", "gc", "collectionTime", OpenMetricsFormat::millisToSeconds);
+
+        memory(writer, samples, values, "jvm_memory_init_bytes", "Initial memory requested from the OS", "init");
+        memory(writer, samples, values, "jvm_memory_used_bytes", "Used memory", "used");
+        memory(writer, samples, values, "jvm_memory_committed_bytes", "Memory committed for the JVM", "committed");
+        memory(writer, samples, values, "jvm_memory_max_bytes", "Maximum memory that can be used", "max");
+        memoryPool(writer, samples, values, "jvm_memory_pool_used_bytes", "Used memory of the memory pool", MemoryUsage::getUsed);
+        memoryPool(writer, samples, values, "jvm_memory_pool_committed_bytes", "Memory committed for the memory pool", MemoryUsage::getCommitted);
+        memoryPool(writer, samples, values, "jvm_memory_pool_max_bytes", "Maximum memory that can be used by the memory pool", MemoryUsage::getMax);
+
+        metric(writer, samples, values, "gauge", "os_available_processors", "Number of processors available to the OS", "os.availableProcessors");
+        metric(writer, samples, values, "gauge", "os_system_load_average", "System load average for the last minute", "os.systemLoadAverage");
+
+        metric(writer, samples, values, "gauge", "jvm_threads_live", "Number of live threads", "thread.threadCount");
+        metric(writer, samples, values, "gauge", "jvm_threads_daemon", "Number of live daemon threads", "thread.daemonThreadCount");
+        metric(writer, samples, values, "gauge", "jvm_threads_peak", "Peak number of live threads", "thread.peakThreadCount");
+        metric(writer, samples, values, "counter", "jvm_threads_started", "Number of threads started since the JVM started", "thread.totalStartedThreadCount");
+        threadStates(writer, samples, values);
+
+        writer.write("# EOF\n");
+        writer.flush();
+    }
+
+    private static void metric(Utf8Writer writer, List<Sample> samples, Map<String, PropertyValue> values, String type, String name, String help, String key) throws IOException {
+        metric(writer, samples, values, type, name, help, key, UnaryOperator.identity());
+    }
+
+    /**
+     * @param unit converts the value to the base unit of the metric (e.g.: seconds)
+     */
+    private static void metric(Utf8Writer writer, List<Sample> samples, Map<String, PropertyValue> values, String type, String name, String help, String key, UnaryOperator<PropertyValue> unit) throws IOException {
+        samples.clear();
+        samples.add(new Sample(null, null, unit.apply(values.get(key))));
+        family(writer, samples, name, type, help);
+    }
+
+    private static void indexed(Utf8Writer writer, List<Sample> samples, Map<String, PropertyValue> values, String type, String name, String help, String prefix, String label, String property, UnaryOperator<PropertyValue> unit) throws IOException {
+        samples.clear();
+        for (int i = 0; values.containsKey(prefix + "." + i + ".name"); i++) {
+            samples.add(new Sample(label, values.get(prefix + "." + i + ".name").asString(), unit.apply(values.get(prefix + "." + i + "." + property))));
+        }
+        family(writer, samples, name, type, help);
+    }
+
+    /**
+     * OpenMetrics uses seconds as the unit of time, negative values mean that the value is not available so they are not converted.
+     */
+    private static PropertyValue millisToSeconds(PropertyValue value) {
+        return value instanceof LongValue longValue && longValue.value() >= 0 ? PropertyValue.of(longValue.value() / 1e3) : value;
+    }
+
+    private static void memory(Utf8Writer writer, List<Sample> samples, Map<String, PropertyValue> values, String name, String help, String property) throws IOException {
+        samples.clear();
+        samples.add(new Sample("area", "heap", values.get("memory.heapMemoryUsage." + property)));
+        samples.add(new Sample("area", "nonheap", values.get("memory.nonHeapMemoryUsage." + property)));
+        family(writer, samples, name, "gauge", help);
+    }
+
+    private static void memoryPool(Utf8Writer writer, List<Sample> samples, Map<String, PropertyValue> values, String name, String help, ToLongFunction<MemoryUsage> property) throws IOException {
+        samples.clear();
+        for (int i = 0; values.containsKey("memoryPool." + i + ".name"); i++) {
+            if (values.get("memoryPool." + i + ".usage") instanceof ObjectValue objectValue && objectValue.value() instanceof MemoryUsage usage) {
+                samples.add(new Sample("pool", values.get("memoryPool." + i + ".name").asString(), PropertyValue.of(property.applyAsLong(usage))));
+            }
+        }
+        family(writer, samples, name, "gauge", help);
+    }
+
+    private static void threadStates(Utf8Writer writer, List<Sample> samples, Map<String, PropertyValue> values) throws IOException {
+        long[] counts = new long[Thread.State.values().length];
+        boolean found = false;
+        for (Entry<String, PropertyValue> entry : values.entrySet()) {
+            if (entry.getValue() instanceof ObjectValue objectValue && objectValue.value() instanceof ThreadInfo threadInfo) {
+                counts[threadInfo.getThreadState().ordinal()]++;
+                found = true;
+            }
+        }
+
+        samples.clear();
+        if (found) {
+            for (Thread.State state : Thread.State.values()) {
+                samples.add(new Sample("state", state.name(), PropertyValue.of(counts[state.ordinal()])));
+            }
+        }
+        family(writer, samples, "jvm_threads_state", "gauge", "Number of threads in the given state");
+    }
+
+    /**
+     * Writes the metadata and the numeric samples of the family, nothing is written if there are no numeric samples.
+     */
+    private static void family(Utf8Writer writer, List<Sample> samples, String name, String type, String help) throws IOException {
+        if (samples.stream().noneMatch(sample -> isNumeric(sample.value()))) {
+            return;
+        }
+
+        writer.write("# TYPE ").write(name).write(' ').write(type).write('\n');
+        writer.write("# HELP ").write(name).write(' ').write(help).write('\n');
+        for (Sample sample : samples) {
+            if (isNumeric(sample.value())) {
+                writer.write(name);
+                if ("counter".equals(type)) {
+                    writer.write("_total");
+                }
+                if (sample.labelName() != null) {
+                    writer.write('{').write(sample.labelName()).write("=\"");
+                    writeEscaped(writer, sample.labelValue());
+                    writer.write("\"}");
+                }
+                writer.write(' ');
+                writeValue(writer, sample.value());
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static boolean isNumeric(PropertyValue value) {
+        return value instanceof LongValue || value instanceof DoubleValue || value instanceof BooleanValue;
+    }
+
+    private static void writeValue(Utf8Writer writer, PropertyValue value) throws IOException {
+        if (value instanceof LongValue longValue) {
+            writer.write(longValue.value());
+        }
+        else if (value instanceof DoubleValue doubleValue) {
+            double number = doubleValue.value();
+            if (Double.isNaN(number)) writer.write("NaN");
+            else if (number == Double.POSITIVE_INFINITY) writer.write("+Inf");
+            else if (number == Double.NEGATIVE_INFINITY) writer.write("-Inf");
+            else writer.write(Double.toString(number));
+        }
+        else if (value instanceof BooleanValue booleanValue) {
+            writer.write(booleanValue.value() ? '1' : '0');
+        }
+    }
+
+    private static void writeEscaped(Utf8Writer writer, String labelValue) throws IOException {
+        for (int i = 0; i < labelValue.length(); i++) {
+            char c = labelValue.charAt(i);
+            if (c == '\\') writer.write("\\\\");
+            else if (c == '"') writer.write("\\\"");
+            else if (c == '\n') writer.write("\\n");
+            else writer.write(c);
+        }
+    }
+
+    private record Sample(String labelName, String labelValue, PropertyValue value) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.develotters.appinfo.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.develotters.appinfo.PropertyValue;
+import com.develotters.appinfo.PropertyValue.LongValue;
+
+/**
+ * Writes the properties in the {@code key: value} format of {@link com.develotters.appinfo.AppInfo#prettyPrint()}.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class TextFormat {
+    private TextFormat() {
+    }
+
+    public static void write(Map<String, PropertyValue> values, OutputStream out) throws IOException {
+        Utf8Writer writer = new Utf8Writer(out);
+        boolean first = true;
+        for (Entry<String, PropertyValue> entry : values.entrySet()) {
+            if (!first) {
+                writer.write('\n');
+            }
+            writer.write(entry.getKey()).write(": ");
+            if (entry.getValue() instanceof LongValue longValue) {
+                writer.write(longValue.value());
+            }
+            else {
+                writer.write(entry.getValue().asString());
+            }
+            first = false;
+        }
+        writer.flush();
+    }
+}
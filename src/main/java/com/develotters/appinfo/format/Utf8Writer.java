@@ -0,0 +1,110 @@
+package com.develotters.appinfo.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes characters to UTF-8 into a fixed size buffer and writes it to the underlying stream when it is full,
+ * so the memory needed to write a response does not depend on its size.
+ * Not thread-safe, not closing the underlying stream.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class Utf8Writer {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+
+    public Utf8Writer(OutputStream out) {
+        this.out = out;
+    }
+
+    public Utf8Writer write(String string) throws IOException {
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, string.charAt(++i)));
+            }
+            else {
+                write(c);
+            }
+        }
+
+        return this;
+    }
+
+    public Utf8Writer write(char c) throws IOException {
+        if (c < 0x80) {
+            writeByte(c);
+        }
+        else if (c < 0x800) {
+            writeByte(0xC0 | (c >> 6));
+            writeByte(0x80 | (c & 0x3F));
+        }
+        else if (Character.isSurrogate(c)) {
+            writeByte('?');
+        }
+        else {
+            writeByte(0xE0 | (c >> 12));
+            writeByte(0x80 | ((c >> 6) & 0x3F));
+            writeByte(0x80 | (c & 0x3F));
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes the decimal representation of the number without creating a {@link String}.
+     */
+    public Utf8Writer write(long number) throws IOException {
+        if (number == Long.MIN_VALUE) {
+            return write(Long.toString(number));
+        }
+        if (number < 0) {
+            writeByte('-');
+            number = -number;
+        }
+
+        long divisor = 1;
+        while (number / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            writeByte('0' + (int) (number / divisor % 10));
+            divisor /= 10;
+        }
+
+        return this;
+    }
+
+    public void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes a supplementary code point (that would be a surrogate pair in a {@link String}).
+     */
+    public Utf8Writer writeCodePoint(int codePoint) throws IOException {
+        writeByte(0xF0 | (codePoint >> 18));
+        writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+        writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+        writeByte(0x80 | (codePoint & 0x3F));
+
+        return this;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = (byte) b;
+    }
+}
@@ -0,0 +1,26 @@
+package com.develotters.appinfo.history;
+
+import java.util.List;
+
+/**
+ * Copy of the samples recorded by {@link HistorySampler}, oldest first.
+ * {@code values[i][j]} is the value of {@code names[i]} at {@code timestamps[j]}.
+ *
+ * @param names the names of the recorded metrics (same as the keys of the corresponding properties)
+ * @param timestamps the time of the samples in epoch millis
+ * @param values the recorded values by metric
+ * @author Jonatan Ivanov
+ */
+public record History(List<String> names, long[] timestamps, long[][] values) {
+    /**
+     * @return the recorded values of the metric or null if the metric is not recorded
+     */
+    public long[] values(String name) {
+        int index = names.indexOf(name);
+        return index >= 0 ? values[index] : null;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+}
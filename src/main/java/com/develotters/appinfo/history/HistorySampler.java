@@ -0,0 +1,191 @@
+package com.develotters.appinfo.history;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.develotters.appinfo.AppInfoComponent;
+
+import static com.develotters.appinfo.AppInfoComponent.CLASS_LOADING;
+import static com.develotters.appinfo.AppInfoComponent.COMPILATION;
+import static com.develotters.appinfo.AppInfoComponent.GARBAGE_COLLECTOR;
+import static com.develotters.appinfo.AppInfoComponent.MEMORY;
+import static com.develotters.appinfo.AppInfoComponent.THREAD;
+
+/**
+ * Samples the numeric values of the {@link #SUPPORTED} components at a fixed interval and keeps the last samples
+ * in a {@link RingBuffer} so that trends can be seen without an external monitoring system.
+ * The metrics are named after the properties they correspond to (e.g.: {@code gc.0.collectionTime}).
+ * Sampling reads the MXBeans directly into a reused row, it does not go through {@link com.develotters.appinfo.AppInfo}
+ * and does not box the values.
+ *
+ * @author Jonatan Ivanov
+ */
+public class HistorySampler implements AutoCloseable {
+    public static final Set<AppInfoComponent> SUPPORTED = EnumSet.of(MEMORY, GARBAGE_COLLECTOR, THREAD, CLASS_LOADING, COMPILATION);
+
+    private final Set<AppInfoComponent> components;
+    private final Duration interval;
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final GarbageCollectorMXBean[] gcMXBeans = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final ClassLoadingMXBean classLoadingMXBean = ManagementFactory.getClassLoadingMXBean();
+    private final CompilationMXBean compilationMXBean = ManagementFactory.getCompilationMXBean();
+    private final boolean compilationTimeSupported = compilationMXBean != null && compilationMXBean.isCompilationTimeMonitoringSupported();
+    private final RingBuffer buffer;
+    private final long[] row;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Samples all the {@link #SUPPORTED} components.
+     */
+    public HistorySampler(Duration interval, int capacity) {
+        this(interval, capacity, SUPPORTED);
+    }
+
+    /**
+     * @param interval the time between two samples
+     * @param capacity the number of samples to keep, the oldest ones are overwritten
+     * @param components the components to sample, only the {@link #SUPPORTED} ones are allowed
+     */
+    public HistorySampler(Duration interval, int capacity, Set<AppInfoComponent> components) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        for (AppInfoComponent component : components) {
+            if (!SUPPORTED.contains(component)) {
+                throw new IllegalArgumentException("Sampling " + component + " is not supported, supported components: " + SUPPORTED);
+            }
+        }
+
+        this.components = components.isEmpty() ? EnumSet.noneOf(AppInfoComponent.class) : EnumSet.copyOf(components);
+        this.interval = interval;
+        this.buffer = new RingBuffer(getNames(), capacity);
+        this.row = new long[buffer.getNames().size()];
+    }
+
+    /**
+     * Starts sampling on a daemon thread, the first sample is recorded immediately.
+     */
+    public synchronized HistorySampler start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> Thread.ofPlatform().name("app-info-sampler").daemon().unstarted(runnable));
+            scheduler.scheduleAtFixedRate(this::sample, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return all the recorded samples
+     */
+    public History getHistory() {
+        return buffer.snapshot(Long.MIN_VALUE);
+    }
+
+    /**
+     * @return the samples recorded in the given time window
+     */
+    public History getHistory(Duration window) {
+        return buffer.snapshot(System.currentTimeMillis() - window.toMillis());
+    }
+
+    /**
+     * Records a sample, an exception would cancel the scheduled sampling so the errors are swallowed.
+     */
+    void sample() {
+        try {
+            int i = 0;
+            if (components.contains(MEMORY)) {
+                MemoryUsage heap = memoryMXBean.getHeapMemoryUsage();
+                row[i++] = heap.getUsed();
+                row[i++] = heap.getCommitted();
+                MemoryUsage nonHeap = memoryMXBean.getNonHeapMemoryUsage();
+                row[i++] = nonHeap.getUsed();
+                row[i++] = nonHeap.getCommitted();
+            }
+            if (components.contains(GARBAGE_COLLECTOR)) {
+                for (GarbageCollectorMXBean gcMXBean : gcMXBeans) {
+                    row[i++] = gcMXBean.getCollectionCount();
+                    row[i++] = gcMXBean.getCollectionTime();
+                }
+            }
+            if (components.contains(THREAD)) {
+                row[i++] = threadMXBean.getThreadCount();
+                row[i++] = threadMXBean.getDaemonThreadCount();
+                row[i++] = threadMXBean.getPeakThreadCount();
+                row[i++] = threadMXBean.getTotalStartedThreadCount();
+            }
+            if (components.contains(CLASS_LOADING)) {
+                row[i++] = classLoadingMXBean.getLoadedClassCount();
+                row[i++] = classLoadingMXBean.getTotalLoadedClassCount();
+                row[i++] = classLoadingMXBean.getUnloadedClassCount();
+            }
+            if (components.contains(COMPILATION) && compilationTimeSupported) {
+                row[i] = compilationMXBean.getTotalCompilationTime();
+            }
+            buffer.add(System.currentTimeMillis(), row);
+        }
+        catch (Throwable ignored) {
+            // swallow the error :(
+        }
+    }
+
+    /**
+     * The names of the sampled metrics, the order must be the same as the order in {@link #sample()}.
+     */
+    private List<String> getNames() {
+        List<String> names = new ArrayList<>();
+        if (components.contains(MEMORY)) {
+            names.addAll(List.of(
+                "memory.heapMemoryUsage.used", "memory.heapMemoryUsage.committed",
+                "memory.nonHeapMemoryUsage.used", "memory.nonHeapMemoryUsage.committed"
+            ));
+        }
+        if (components.contains(GARBAGE_COLLECTOR)) {
+            for (int i = 0; i < gcMXBeans.length; i++) {
+                names.add("gc." + i + ".collectionCount");
+                names.add("gc." + i + ".collectionTime");
+            }
+        }
+        if (components.contains(THREAD)) {
+            names.addAll(List.of(
+                "thread.threadCount", "thread.daemonThreadCount", "thread.peakThreadCount", "thread.totalStartedThreadCount"
+            ));
+        }
+        if (components.contains(CLASS_LOADING)) {
+            names.addAll(List.of(
+                "classLoading.loadedClassCount", "classLoading.totalLoadedClassCount", "classLoading.unloadedClassCount"
+            ));
+        }
+        if (components.contains(COMPILATION) && compilationTimeSupported) {
+            names.add("compilation.totalCompilationTime");
+        }
+
+        return names;
+    }
+}
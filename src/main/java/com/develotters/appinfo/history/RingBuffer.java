@@ -0,0 +1,66 @@
+package com.develotters.appinfo.history;
+
+import java.util.List;
+
+/**
+ * Fixed size, column oriented buffer of long samples, the oldest samples are overwritten when it is full.
+ * Recording a sample does not allocate.
+ *
+ * @author Jonatan Ivanov
+ */
+class RingBuffer {
+    private final List<String> names;
+    private final long[] timestamps;
+    private final long[][] values;
+    private int next = 0;
+    private int size = 0;
+
+    RingBuffer(List<String> names, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.names = List.copyOf(names);
+        this.timestamps = new long[capacity];
+        this.values = new long[names.size()][capacity];
+    }
+
+    List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @param row the values of the sample in the order of {@link #getNames()}
+     */
+    synchronized void add(long timestamp, long[] row) {
+        timestamps[next] = timestamp;
+        for (int i = 0; i < values.length; i++) {
+            values[i][next] = row[i];
+        }
+        next = (next + 1) % timestamps.length;
+        size = Math.min(size + 1, timestamps.length);
+    }
+
+    /**
+     * @return the samples recorded at or after the given time (epoch millis)
+     */
+    synchronized History snapshot(long since) {
+        int start = (next - size + timestamps.length) % timestamps.length;
+        int skip = 0;
+        while (skip < size && timestamps[(start + skip) % timestamps.length] < since) {
+            skip++;
+        }
+
+        int count = size - skip;
+        long[] resultTimestamps = new long[count];
+        long[][] resultValues = new long[values.length][count];
+        for (int j = 0; j < count; j++) {
+            int index = (start + skip + j) % timestamps.length;
+            resultTimestamps[j] = timestamps[index];
+            for (int i = 0; i < values.length; i++) {
+                resultValues[i][j] = values[i][index];
+            }
+        }
+
+        return new History(names, resultTimestamps, resultValues);
+    }
+}
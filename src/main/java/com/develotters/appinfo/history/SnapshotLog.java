@@ -0,0 +1,237 @@
+package com.develotters.appinfo.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.develotters.appinfo.PropertyValue;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The binary format of the snapshots recorded by {@link SnapshotRecorder} and the reader of it.
+ * The snapshots are written into segments (files) that can be read on their own, every segment starts with
+ * {@link #MAGIC} and {@link #VERSION} followed by records:
+ * <ul>
+ *     <li>{@link #KEY}: the name of a property (varint length + UTF-8), the first key of a segment gets id 0, the next one 1, etc.
+ *     Every key is written once per segment, before the first sample that uses it.</li>
+ *     <li>{@link #SAMPLE}: the timestamp (zigzag varint, the difference to the previous sample of the segment in millis),
+ *     the number of entries (varint) and the entries: key id (varint), value type (byte) and the value.
+ *     Only the properties that changed since the previous sample of the segment are written.</li>
+ * </ul>
+ * Long values are written as the zigzag varint difference to the previous value of the property ({@link #LONG_DELTA})
+ * so counters and gauges that do not change much take one or two bytes.
+ * If the process dies while a record is written, the reader stops at the incomplete record.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class SnapshotLog {
+    static final byte[] MAGIC = { 'A', 'I', 'S', 'L' };
+    static final byte VERSION = 1;
+    static final String SEGMENT_PREFIX = "snapshots-";
+    static final String SEGMENT_SUFFIX = ".bin";
+
+    static final byte KEY = 1;
+    static final byte SAMPLE = 2;
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte LONG = 3;
+    static final byte LONG_DELTA = 4;
+    static final byte DOUBLE = 5;
+    static final byte STRING = 6;
+    static final byte REMOVED = 7;
+
+    private SnapshotLog() {
+    }
+
+    /**
+     * @param timestamp the time of the snapshot in epoch millis
+     * @param values the properties sorted by key
+     */
+    public record Snapshot(long timestamp, Map<String, PropertyValue> values) {
+    }
+
+    /**
+     * Reads the snapshots in the order they were recorded.
+     *
+     * @param path a segment or a directory of segments (they are read in the order of their names, that is the order they were written)
+     * @param consumer gets the full snapshots (the unchanged properties are filled in from the previous samples)
+     */
+    public static void read(Path path, Consumer<Snapshot> consumer) throws IOException {
+        for (Path segment : Files.isDirectory(path) ? segments(path) : List.of(path)) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    /**
+     * @return the segments in the directory sorted by name, oldest first
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX) && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .toList();
+        }
+    }
+
+    static Path segment(Path directory, long index) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * @return the index of the segment from its name, -1 if it is not a segment
+     */
+    static long segmentIndex(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        }
+        catch (IndexOutOfBoundsException | NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    private static void readSegment(Path segment, Consumer<Snapshot> consumer) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.remaining() >= magic.length) {
+            buffer.get(magic);
+        }
+        if (!Arrays.equals(magic, MAGIC) || !buffer.hasRemaining()) {
+            throw new IOException("Not a snapshot log segment: " + segment);
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot log version " + version + ": " + segment);
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<PropertyValue> values = new ArrayList<>();
+        Map<String, PropertyValue> snapshot = new TreeMap<>();
+        long timestamp = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                if (type == KEY) {
+                    keys.add(readString(buffer));
+                    values.add(null);
+                }
+                else if (type == SAMPLE) {
+                    long sampleTimestamp = timestamp + zigzagDecode(readVarLong(buffer));
+                    // the changes are applied only if the whole record could be read
+                    Map<Integer, PropertyValue> changes = readEntries(buffer, values);
+                    changes.forEach((id, value) -> {
+                        values.set(id, value);
+                        if (value != null) {
+                            snapshot.put(keys.get(id), value);
+                        }
+                        else {
+                            snapshot.remove(keys.get(id));
+                        }
+                    });
+                    timestamp = sampleTimestamp;
+                    consumer.accept(new Snapshot(timestamp, new TreeMap<>(snapshot)));
+                }
+                else {
+                    throw new IOException("Unknown record type " + type + " at " + (buffer.position() - 1) + ": " + segment);
+                }
+            }
+        }
+        catch (BufferUnderflowException exception) {
+            // the last record is incomplete (e.g.: the process died while it was written)
+        }
+        catch (RuntimeException exception) {
+            throw new IOException("Corrupted snapshot log segment: " + segment, exception);
+        }
+    }
+
+    /**
+     * @return the new values by key id, null if the property was removed
+     */
+    private static Map<Integer, PropertyValue> readEntries(ByteBuffer buffer, List<PropertyValue> values) {
+        int count = (int) readVarLong(buffer);
+        Map<Integer, PropertyValue> changes = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            int id = (int) readVarLong(buffer);
+            byte type = buffer.get();
+            PropertyValue value = switch (type) {
+                case NULL -> PropertyValue.NULL;
+                case FALSE -> PropertyValue.FALSE;
+                case TRUE -> PropertyValue.TRUE;
+                case LONG -> PropertyValue.of(zigzagDecode(readVarLong(buffer)));
+                case LONG_DELTA -> PropertyValue.of(((PropertyValue.LongValue) values.get(id)).value() + zigzagDecode(readVarLong(buffer)));
+                case DOUBLE -> PropertyValue.of(buffer.getDouble());
+                case STRING -> PropertyValue.of(readString(buffer));
+                case REMOVED -> null;
+                default -> throw new IllegalStateException("Unknown value type " + type + " at " + (buffer.position() - 1));
+            };
+            changes.put(id, value);
+        }
+
+        return changes;
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+
+        throw new IllegalStateException("Malformed varint at " + buffer.position());
+    }
+
+    /**
+     * Maps signed values to unsigned ones so that small negative values are small too: 0, -1, 1, -2, 2... → 0, 1, 2, 3, 4...
+     */
+    static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) readVarLong(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,292 @@
+package com.develotters.appinfo.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.develotters.appinfo.PropertyValue;
+import com.develotters.appinfo.PropertyValue.BooleanValue;
+import com.develotters.appinfo.PropertyValue.DoubleValue;
+import com.develotters.appinfo.PropertyValue.LongValue;
+
+import static com.develotters.appinfo.history.SnapshotLog.DOUBLE;
+import static com.develotters.appinfo.history.SnapshotLog.FALSE;
+import static com.develotters.appinfo.history.SnapshotLog.KEY;
+import static com.develotters.appinfo.history.SnapshotLog.LONG;
+import static com.develotters.appinfo.history.SnapshotLog.LONG_DELTA;
+import static com.develotters.appinfo.history.SnapshotLog.NULL;
+import static com.develotters.appinfo.history.SnapshotLog.REMOVED;
+import static com.develotters.appinfo.history.SnapshotLog.SAMPLE;
+import static com.develotters.appinfo.history.SnapshotLog.STRING;
+import static com.develotters.appinfo.history.SnapshotLog.TRUE;
+
+/**
+ * Records snapshots of the properties at a fixed interval into an append-only log on the local disk (see {@link SnapshotLog}
+ * for the format) so that they can be read after the process died: {@code java -jar app-info.jar --replay <directory>}.
+ * Only the changes are written (static properties are written once per segment) and a sample is written with one
+ * {@link FileChannel#write(ByteBuffer)} into the page cache, the log is not forced to the disk after every sample
+ * (only when a segment is closed) so it survives the death of the process but not the crash of the machine.
+ * When a segment reaches its max size a new one is started and the oldest ones are deleted so that there are at most
+ * {@code maxSegments} segments in the directory. A new segment is started every time the recorder is started.
+ *
+ * @author Jonatan Ivanov
+ */
+public class SnapshotRecorder implements AutoCloseable {
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 4;
+
+    private final Path directory;
+    private final Supplier<Map<String, PropertyValue>> snapshotSupplier;
+    private final Duration interval;
+    private final long maxSegmentSize;
+    private final int maxSegments;
+    private final ByteArrayOutputStream keysBuffer = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream entriesBuffer = new ByteArrayOutputStream();
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final List<PropertyValue> previousValues = new ArrayList<>();
+    private long[] lastSeen = new long[1024];
+    private FileChannel channel;
+    private long segmentIndex = -1;
+    private long segmentSize;
+    private long previousTimestamp;
+    private long sampleCount;
+    private ScheduledExecutorService scheduler;
+
+    public SnapshotRecorder(Path directory, Supplier<Map<String, PropertyValue>> snapshotSupplier, Duration interval) {
+        this(directory, snapshotSupplier, interval, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * @param directory the directory of the segments, it is created if it does not exist
+     * @param snapshotSupplier called on every sample
+     * @param interval the time between two samples
+     * @param maxSegmentSize the size of a segment in bytes after which a new segment is started
+     * @param maxSegments the number of segments to keep, the oldest ones are deleted
+     */
+    public SnapshotRecorder(Path directory, Supplier<Map<String, PropertyValue>> snapshotSupplier, Duration interval, long maxSegmentSize, int maxSegments) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        if (maxSegmentSize <= 0 || maxSegments <= 0) {
+            throw new IllegalArgumentException("Max segment size and max segments must be positive: " + maxSegmentSize + ", " + maxSegments);
+        }
+
+        this.directory = directory;
+        this.snapshotSupplier = snapshotSupplier;
+        this.interval = interval;
+        this.maxSegmentSize = maxSegmentSize;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Starts recording on a daemon thread, the first sample is recorded immediately.
+     */
+    public synchronized SnapshotRecorder start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> Thread.ofPlatform().name("app-info-recorder").daemon().unstarted(runnable));
+            scheduler.scheduleAtFixedRate(this::sample, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        return this;
+    }
+
+    /**
+     * Stops recording and closes the current segment.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(interval.toMillis() + 1_000, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        closeSegment();
+    }
+
+    /**
+     * Records a sample, an exception would cancel the scheduled sampling so the errors are swallowed.
+     */
+    void sample() {
+        try {
+            record(System.currentTimeMillis(), snapshotSupplier.get());
+        }
+        catch (Throwable ignored) {
+            // swallow the error :(
+        }
+    }
+
+    /**
+     * Writes the keys that are new in the segment and the values that changed since the previous sample.
+     * The sample is encoded first and the dictionary and the previous values are only updated after it was written,
+     * so a sample that cannot be encoded (e.g.: {@link PropertyValue#asString()} fails) is skipped without corrupting the segment.
+     */
+    synchronized void record(long timestamp, Map<String, PropertyValue> values) throws IOException {
+        if (channel == null || segmentSize >= maxSegmentSize) {
+            startSegment();
+        }
+
+        sampleCount++;
+        keysBuffer.reset();
+        entriesBuffer.reset();
+        List<String> newKeys = new ArrayList<>();
+        List<Integer> changedIds = new ArrayList<>();
+        List<PropertyValue> changedValues = new ArrayList<>();
+        for (Entry<String, PropertyValue> entry : values.entrySet()) {
+            Integer id = keyIds.get(entry.getKey());
+            PropertyValue previous = null;
+            if (id == null) {
+                id = keyIds.size() + newKeys.size();
+                newKeys.add(entry.getKey());
+                if (id == lastSeen.length) {
+                    lastSeen = Arrays.copyOf(lastSeen, id * 2);
+                }
+                keysBuffer.write(KEY);
+                SnapshotLog.writeString(keysBuffer, entry.getKey());
+            }
+            else {
+                previous = previousValues.get(id);
+            }
+            lastSeen[id] = sampleCount;
+            PropertyValue value = entry.getValue() != null ? entry.getValue() : PropertyValue.NULL;
+            if (!value.equals(previous)) {
+                writeEntry(id, value, previous);
+                changedIds.add(id);
+                changedValues.add(value);
+            }
+        }
+        for (int id = 0; id < previousValues.size(); id++) {
+            if (previousValues.get(id) != null && lastSeen[id] != sampleCount) {
+                SnapshotLog.writeVarLong(entriesBuffer, id);
+                entriesBuffer.write(REMOVED);
+                changedIds.add(id);
+                changedValues.add(null);
+            }
+        }
+
+        keysBuffer.write(SAMPLE);
+        SnapshotLog.writeVarLong(keysBuffer, SnapshotLog.zigzagEncode(timestamp - previousTimestamp));
+        SnapshotLog.writeVarLong(keysBuffer, changedIds.size());
+        entriesBuffer.writeTo(keysBuffer);
+        try {
+            write(ByteBuffer.wrap(keysBuffer.toByteArray()));
+        }
+        catch (IOException exception) {
+            // the segment might end with an incomplete record, the next sample starts a new one
+            closeSegment();
+            throw exception;
+        }
+
+        for (String key : newKeys) {
+            keyIds.put(key, previousValues.size());
+            previousValues.add(null);
+        }
+        for (int i = 0; i < changedIds.size(); i++) {
+            previousValues.set(changedIds.get(i), changedValues.get(i));
+        }
+        previousTimestamp = timestamp;
+    }
+
+    private void writeEntry(int id, PropertyValue value, PropertyValue previous) {
+        SnapshotLog.writeVarLong(entriesBuffer, id);
+        if (value instanceof LongValue longValue) {
+            if (previous instanceof LongValue previousLong) {
+                entriesBuffer.write(LONG_DELTA);
+                SnapshotLog.writeVarLong(entriesBuffer, SnapshotLog.zigzagEncode(longValue.value() - previousLong.value()));
+            }
+            else {
+                entriesBuffer.write(LONG);
+                SnapshotLog.writeVarLong(entriesBuffer, SnapshotLog.zigzagEncode(longValue.value()));
+            }
+        }
+        else if (value instanceof DoubleValue doubleValue) {
+            entriesBuffer.write(DOUBLE);
+            long bits = Double.doubleToRawLongBits(doubleValue.value());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                entriesBuffer.write((int) (bits >>> shift));
+            }
+        }
+        else if (value instanceof BooleanValue booleanValue) {
+            entriesBuffer.write(booleanValue.value() ? TRUE : FALSE);
+        }
+        else if (value == PropertyValue.NULL) {
+            entriesBuffer.write(NULL);
+        }
+        else {
+            entriesBuffer.write(STRING);
+            SnapshotLog.writeString(entriesBuffer, value.asString());
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            segmentSize += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Closes the current segment, starts a new one (with an empty dictionary) and deletes the oldest segments.
+     */
+    private void startSegment() throws IOException {
+        closeSegment();
+        Files.createDirectories(directory);
+        List<Path> segments = SnapshotLog.segments(directory);
+        if (segmentIndex < 0) {
+            segmentIndex = segments.isEmpty() ? 0 : SnapshotLog.segmentIndex(segments.get(segments.size() - 1)) + 1;
+        }
+        else {
+            segmentIndex++;
+        }
+
+        keyIds.clear();
+        previousValues.clear();
+        Arrays.fill(lastSeen, 0);
+        previousTimestamp = 0;
+        channel = FileChannel.open(SnapshotLog.segment(directory, segmentIndex), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+        ByteBuffer header = ByteBuffer.allocate(SnapshotLog.MAGIC.length + 1).put(SnapshotLog.MAGIC).put(SnapshotLog.VERSION).flip();
+        try {
+            write(header);
+        }
+        catch (IOException exception) {
+            // without a complete header the segment cannot be read, the next sample starts a new one
+            closeSegment();
+            throw exception;
+        }
+
+        for (int i = 0; i <= segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel != null) {
+            try {
+                channel.force(false);
+            }
+            finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
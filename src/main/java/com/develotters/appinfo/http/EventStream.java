@@ -0,0 +1,224 @@
+package com.develotters.appinfo.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.develotters.appinfo.Instrumentation;
+import com.develotters.appinfo.PropertyValue;
+import com.develotters.appinfo.format.JsonFormat;
+import com.sun.net.httpserver.HttpExchange;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Server-Sent Events endpoint that sends the changes of the properties: one loop collects a snapshot at a fixed interval
+ * (only while there are subscribers) and compares it to the previous one. New subscribers get the whole snapshot
+ * in a {@code snapshot} event, the rest of them get the changed, added and removed (null) properties in a {@code diff} event,
+ * so properties that don't change (e.g.: system properties) are sent only once. The events are encoded once per tick
+ * regardless of the number of subscribers, every subscriber is served by its own (virtual) thread from a bounded queue,
+ * subscribers that can't keep up are disconnected. If collecting or encoding a snapshot fails, the subscribers get an {@code error} event
+ * (the next diff is computed from the last snapshot they got) and the error is recorded by the {@link Instrumentation.Timer} of the stream.
+ *
+ * @author Jonatan Ivanov
+ */
+final class EventStream {
+    static final String CONTENT_TYPE = "text/event-stream";
+    private static final int QUEUE_CAPACITY = 16;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(UTF_8);
+    private static final byte[] END = new byte[0];
+
+    private final Supplier<Map<String, PropertyValue>> snapshotSupplier;
+    private final Duration interval;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private SortedMap<String, PropertyValue> previous;
+    private ScheduledExecutorService scheduler;
+    private volatile Instrumentation.Timer timer;
+
+    EventStream(Supplier<Map<String, PropertyValue>> snapshotSupplier, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        this.snapshotSupplier = snapshotSupplier;
+        this.interval = interval;
+    }
+
+    /**
+     * @param timer records how long the ticks that collected a snapshot took and the errors of the ticks, can be null
+     */
+    synchronized void start(Instrumentation.Timer timer) {
+        this.timer = timer;
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> Thread.ofPlatform().name("app-info-events").daemon().unstarted(runnable));
+            scheduler.scheduleWithFixedDelay(this::tick, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        subscribers.forEach(subscriber -> subscriber.end());
+    }
+
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Sends the events to the subscriber until it disconnects or it is disconnected, blocks the calling thread.
+     */
+    void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(HTTP_OK, 0);
+
+        Subscriber subscriber = new Subscriber();
+        subscribers.add(subscriber);
+        try (OutputStream out = exchange.getResponseBody()) {
+            byte[] event;
+            while ((event = subscriber.queue.take()) != END) {
+                out.write(event);
+                out.flush();
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException exception) {
+            // the client disconnected
+        }
+        finally {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    /**
+     * Runs on the scheduler thread, an exception would cancel the scheduled ticks so the errors are sent to the subscribers instead.
+     */
+    void tick() {
+        long start = System.nanoTime();
+        try {
+            if (subscribers.isEmpty()) {
+                // the next subscriber gets a new snapshot anyway
+                previous = null;
+                return;
+            }
+
+            SortedMap<String, PropertyValue> current = new TreeMap<>(snapshotSupplier.get());
+            byte[] snapshotEvent = null;
+            byte[] diffEvent = null;
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.initialized && previous != null) {
+                    if (diffEvent == null) {
+                        Map<String, PropertyValue> diff = diff(previous, current);
+                        diffEvent = diff.isEmpty() ? HEARTBEAT : encode("diff", diff);
+                    }
+                    subscriber.offer(diffEvent);
+                }
+                else {
+                    if (snapshotEvent == null) {
+                        snapshotEvent = encode("snapshot", current);
+                    }
+                    subscriber.offer(snapshotEvent);
+                    subscriber.initialized = true;
+                }
+            }
+            previous = current;
+            if (timer != null) {
+                timer.record(System.nanoTime() - start);
+            }
+        }
+        catch (Throwable throwable) {
+            if (timer != null) {
+                timer.recordError(throwable);
+            }
+            byte[] errorEvent = encode("error", Map.of("error", PropertyValue.of(String.valueOf(throwable))));
+            subscribers.forEach(subscriber -> subscriber.offer(errorEvent));
+        }
+    }
+
+    /**
+     * Walks the two sorted maps at the same time.
+     *
+     * @return the properties that changed or were added and the ones that were removed (with a null value)
+     */
+    static Map<String, PropertyValue> diff(SortedMap<String, PropertyValue> previous, SortedMap<String, PropertyValue> current) {
+        Map<String, PropertyValue> diff = new TreeMap<>();
+        Iterator<Entry<String, PropertyValue>> previousIterator = previous.entrySet().iterator();
+        Iterator<Entry<String, PropertyValue>> currentIterator = current.entrySet().iterator();
+        Entry<String, PropertyValue> previousEntry = previousIterator.hasNext() ? previousIterator.next() : null;
+        Entry<String, PropertyValue> currentEntry = currentIterator.hasNext() ? currentIterator.next() : null;
+        while (previousEntry != null || currentEntry != null) {
+            int comparison = previousEntry == null ? 1 : currentEntry == null ? -1 : previousEntry.getKey().compareTo(currentEntry.getKey());
+            if (comparison < 0) {
+                diff.put(previousEntry.getKey(), PropertyValue.NULL);
+                previousEntry = previousIterator.hasNext() ? previousIterator.next() : null;
+            }
+            else if (comparison > 0) {
+                diff.put(currentEntry.getKey(), currentEntry.getValue());
+                currentEntry = currentIterator.hasNext() ? currentIterator.next() : null;
+            }
+            else {
+                if (!previousEntry.getValue().equals(currentEntry.getValue())) {
+                    diff.put(currentEntry.getKey(), currentEntry.getValue());
+                }
+                previousEntry = previousIterator.hasNext() ? previousIterator.next() : null;
+                currentEntry = currentIterator.hasNext() ? currentIterator.next() : null;
+            }
+        }
+
+        return diff;
+    }
+
+    private static byte[] encode(String name, Map<String, PropertyValue> values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            out.write(("event: " + name + "\ndata: ").getBytes(UTF_8));
+            JsonFormat.write(values, out);
+            out.write("\n\n".getBytes(UTF_8));
+        }
+        catch (IOException exception) {
+            // writing into memory does not fail
+            throw new UncheckedIOException(exception);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static class Subscriber {
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean initialized;
+
+        /**
+         * If the queue is full, the subscriber is too slow: the events are dropped and the subscriber is disconnected.
+         */
+        private void offer(byte[] event) {
+            if (!queue.offer(event)) {
+                end();
+            }
+        }
+
+        private void end() {
+            queue.clear();
+            queue.offer(END);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.develotters.appinfo.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the body of a response. The server streams it into the response unless the request is conditional or accepts
+ * a compressed response, in that case it is written into memory first so that the server can compute its entity tag
+ * (a hash of the content) and compress it.
+ *
+ * @author Jonatan Ivanov
+ */
+@FunctionalInterface
+public interface ResponseWriter {
+    void writeTo(OutputStream out) throws IOException;
+
+    static ResponseWriter of(String response) {
+        byte[] bytes = response.getBytes(UTF_8);
+        return out -> out.write(bytes);
+    }
+}
@@ -1,15 +1,43 @@
 package com.develotters.appinfo.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
+import com.develotters.appinfo.Instrumentation;
+import com.develotters.appinfo.PropertyValue;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -17,49 +45,469 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  * @author Jonatan Ivanov
  */
 public class SimpleHttpServer {
+    public static final String TEXT_PLAIN = "text/plain; charset=UTF-8";
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static final int MIN_COMPRESSION_SIZE = 1024;
+
     private final HttpServer server;
-    private final Supplier<String> responseSupplier;
+    private final Map<String, List<Variant>> routes = new LinkedHashMap<>();
+    private final Map<String, EventStream> eventStreams = new LinkedHashMap<>();
+    private Instrumentation instrumentation;
 
-    public SimpleHttpServer(Supplier<String> responseSupplier) throws IOException {
+    public SimpleHttpServer(Supplier<ResponseWriter> responseSupplier) throws IOException {
         this(8080, responseSupplier);
     }
 
-    public SimpleHttpServer(int port, Supplier<String> responseSupplier) throws IOException {
+    public SimpleHttpServer(int port, Supplier<ResponseWriter> responseSupplier) throws IOException {
         this(HttpServer.create(new InetSocketAddress(port), 0), responseSupplier);
     }
 
-    public SimpleHttpServer(HttpServer server, Supplier<String> responseSupplier) {
+    public SimpleHttpServer(HttpServer server, Supplier<ResponseWriter> responseSupplier) {
+        this(server, parameters -> responseSupplier.get());
+    }
+
+    /**
+     * @param executor the executor the requests are handled on (virtual threads by default)
+     */
+    public SimpleHttpServer(HttpServer server, Executor executor, Supplier<ResponseWriter> responseSupplier) {
+        this(server, executor, parameters -> responseSupplier.get());
+    }
+
+    /**
+     * The query parameters of the requests to {@code /} are passed to the function, see {@link #route(String, String, Function)}.
+     */
+    public SimpleHttpServer(Function<Map<String, String>, ResponseWriter> responseFunction) throws IOException {
+        this(8080, responseFunction);
+    }
+
+    public SimpleHttpServer(int port, Function<Map<String, String>, ResponseWriter> responseFunction) throws IOException {
+        this(HttpServer.create(new InetSocketAddress(port), 0), responseFunction);
+    }
+
+    public SimpleHttpServer(HttpServer server, Function<Map<String, String>, ResponseWriter> responseFunction) {
+        this(server, Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("app-info-http-", 0).factory()), responseFunction);
+    }
+
+    public SimpleHttpServer(HttpServer server, Executor executor, Function<Map<String, String>, ResponseWriter> responseFunction) {
         this.server = server;
-        this.responseSupplier = responseSupplier;
+        this.server.setExecutor(executor);
+        route("/", TEXT_PLAIN, responseFunction);
+    }
+
+    /**
+     * Registers an additional path or an additional content type for an existing path, needs to be called before {@link #start()}.
+     * If a path has more than one content type, the one that is served is selected based on the {@code Accept} header,
+     * the first registered one is the default.
+     */
+    public SimpleHttpServer route(String path, String contentType, Supplier<ResponseWriter> responseSupplier) {
+        return route(path, contentType, parameters -> responseSupplier.get());
+    }
+
+    /**
+     * Same as {@link #route(String, String, Supplier)} but the query parameters of the request are passed to the function
+     * (if a parameter is repeated, the last value is used). Only the requests with the same parameters are coalesced.
+     * The path can end with a placeholder (e.g.: {@code /components/{name}}), the rest of the request path is passed
+     * as a parameter with the name of the placeholder.
+     * If the function throws an {@link IllegalArgumentException} (e.g.: a parameter is invalid), the response is {@code 400}
+     * with the message of the exception, so the function should validate the parameters before doing any expensive work.
+     */
+    public SimpleHttpServer route(String path, String contentType, Function<Map<String, String>, ResponseWriter> responseFunction) {
+        routes.computeIfAbsent(path, ignored -> new ArrayList<>()).add(new Variant(contentType, responseFunction));
+        return this;
+    }
+
+    /**
+     * Registers a Server-Sent Events ({@code text/event-stream}) endpoint, needs to be called before {@link #start()}.
+     * The snapshots are collected by one loop at the given interval while there are subscribers (no matter how many),
+     * each subscriber gets the whole snapshot first then only the properties that changed since the previous snapshot.
+     */
+    public SimpleHttpServer eventStream(String path, Supplier<Map<String, PropertyValue>> snapshotSupplier, Duration interval) {
+        eventStreams.put(path, new EventStream(snapshotSupplier, interval));
+        return this;
+    }
+
+    /**
+     * Records the time it takes to serve the requests (by path) and the errors, needs to be called before {@link #start()}.
+     */
+    public SimpleHttpServer instrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        return this;
     }
 
     public void start() {
-        server.createContext("/", this::handleRequest);
+        routes.forEach((path, variants) -> {
+            Instrumentation.Timer timer = instrumentation != null ? instrumentation.timer("http" + path) : null;
+            int placeholderIndex = path.indexOf('{');
+            String contextPath = placeholderIndex >= 0 ? path.substring(0, placeholderIndex) : path;
+            String placeholder = placeholderIndex >= 0 ? path.substring(placeholderIndex + 1, path.length() - 1) : null;
+            server.createContext(contextPath, exchange -> handleRequest(exchange, variants, contextPath, placeholder, timer));
+        });
+        eventStreams.forEach((path, eventStream) -> {
+            server.createContext(path, eventStream::handle);
+            eventStream.start(instrumentation != null ? instrumentation.timer("events" + path) : null);
+        });
         server.start();
         Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
         System.out.println("Listening on port " + server.getAddress().getPort());
     }
 
-    private void handleRequest(HttpExchange exchange) throws IOException {
-        byte[] response = getResponse().getBytes(UTF_8);
-        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
-        exchange.sendResponseHeaders(HTTP_OK, response.length);
+    /**
+     * @param placeholder the name of the parameter the rest of the path (after the context path) is passed as, null if there is none
+     */
+    private void handleRequest(HttpExchange exchange, List<Variant> variants, String contextPath, String placeholder, Instrumentation.Timer timer) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (variants.size() > 1) {
+                exchange.getResponseHeaders().add("Vary", "Accept");
+            }
+            exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (placeholder != null) {
+                parameters.put(placeholder, exchange.getRequestURI().getPath().substring(contextPath.length()));
+            }
+            negotiate(exchange.getRequestHeaders().getFirst("Accept"), variants).handleRequest(exchange, parameters);
+        }
+        catch (IOException | RuntimeException exception) {
+            if (timer != null) {
+                timer.recordError(exception);
+            }
+            throw exception;
+        }
+        finally {
+            if (timer != null) {
+                timer.record(System.nanoTime() - start);
+            }
+        }
+    }
 
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response);
+    /**
+     * Selects the variant with the highest quality in the {@code Accept} header, falls back to the first one.
+     */
+    private static Variant negotiate(String accept, List<Variant> variants) {
+        if (accept == null || variants.size() == 1) {
+            return variants.getFirst();
         }
+
+        Variant result = null;
+        double bestQuality = 0;
+        for (String mediaRange : accept.split(",")) {
+            String[] parts = mediaRange.split(";");
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    quality = parseQuality(parameter.substring(2));
+                }
+            }
+
+            if (quality > bestQuality) {
+                Variant variant = findVariant(parts[0].trim().toLowerCase(Locale.ROOT), variants);
+                if (variant != null) {
+                    result = variant;
+                    bestQuality = quality;
+                }
+            }
+        }
+
+        return result != null ? result : variants.getFirst();
+    }
+
+    private static Variant findVariant(String mediaRange, List<Variant> variants) {
+        if (mediaRange.equals("*/*")) {
+            return variants.getFirst();
+        }
+
+        for (Variant variant : variants) {
+            String mediaType = variant.getMediaType();
+            if (mediaType.equals(mediaRange) || (mediaRange.endsWith("/*") && mediaType.startsWith(mediaRange.substring(0, mediaRange.length() - 1)))) {
+                return variant;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Selects the supported encoding with the highest quality in the {@code Accept-Encoding} header,
+     * null (identity) if there is none or the body is too small to be worth compressing.
+     */
+    private static String negotiateEncoding(String acceptEncoding, int bodySize) {
+        if (acceptEncoding == null || bodySize < MIN_COMPRESSION_SIZE) {
+            return null;
+        }
+
+        String result = null;
+        double bestQuality = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    quality = parseQuality(parameter.substring(2));
+                }
+            }
+
+            if (quality > bestQuality && (name.equals(GZIP) || name.equals(DEFLATE))) {
+                result = name;
+                bestQuality = quality;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Weak comparison of the entity tags in the {@code If-None-Match} header and the entity tag of the response.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || opaqueTag(trimmed).equals(opaqueTag(etag))) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
-    private String getResponse() {
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+
+        for (String parameter : rawQuery.split("&")) {
+            int index = parameter.indexOf('=');
+            String name = index >= 0 ? parameter.substring(0, index) : parameter;
+            String value = index >= 0 ? parameter.substring(index + 1) : "";
+            if (!name.isEmpty()) {
+                parameters.put(URLDecoder.decode(name, UTF_8), URLDecoder.decode(value, UTF_8));
+            }
+        }
+
+        return parameters;
+    }
+
+    private static double parseQuality(String quality) {
         try {
-            return responseSupplier.get();
+            return Double.parseDouble(quality);
+        }
+        catch (NumberFormatException exception) {
+            return 0;
+        }
+    }
+
+    private static class Variant {
+        private static final int MAX_CACHED_BODIES = 16;
+
+        private final String contentType;
+        private final Function<Map<String, String>, ResponseWriter> responseFunction;
+        private final Map<Map<String, String>, CompletableFuture<ResponseWriter>> inFlightResponses = new ConcurrentHashMap<>();
+        private final Map<Map<String, String>, Body> lastBodies = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Map<String, String>, Body> eldest) {
+                return size() > MAX_CACHED_BODIES;
+            }
+        });
+
+        private Variant(String contentType, Function<Map<String, String>, ResponseWriter> responseFunction) {
+            this.contentType = contentType;
+            this.responseFunction = responseFunction;
+        }
+
+        /**
+         * @return the content type without parameters, e.g.: {@code text/plain}
+         */
+        private String getMediaType() {
+            int index = contentType.indexOf(';');
+            return (index >= 0 ? contentType.substring(0, index) : contentType).trim().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * The time it took to create the response (collecting the properties) is sent in the {@code Server-Timing} header.
+         * The response is streamed unless the request has an {@code If-None-Match} or an {@code Accept-Encoding} header,
+         * in that case it is written into memory so that it can be compressed and its entity tag (a hash of the content) can be computed.
+         * If the {@code If-None-Match} header contains the entity tag of the response, only the headers are sent ({@code 304}).
+         */
+        private void handleRequest(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+            long start = System.nanoTime();
+            ResponseWriter response;
+            try {
+                response = getCoalescedResponse(parameters);
+            }
+            catch (Throwable throwable) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                if (cause instanceof IllegalArgumentException) {
+                    sendBadRequest(exchange, cause.getMessage());
+                    return;
+                }
+                response = ResponseWriter.of(getStackTrace(cause));
+            }
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Server-Timing", "collect;dur=" + (System.nanoTime() - start) / 1_000 / 1e3);
+            headers.set("Content-Type", contentType);
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (ifNoneMatch == null && acceptEncoding == null) {
+                exchange.sendResponseHeaders(HTTP_OK, 0);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    response.writeTo(os);
+                }
+                return;
+            }
+
+            Body body = getBody(parameters, render(response));
+            headers.set("ETag", body.getEtag());
+            if (matches(ifNoneMatch, body.getEtag())) {
+                exchange.sendResponseHeaders(HTTP_NOT_MODIFIED, -1);
+                exchange.close();
+                return;
+            }
+
+            String encoding = negotiateEncoding(acceptEncoding, body.getSize());
+            byte[] bytes = body.getBytes(encoding);
+            if (encoding != null) {
+                headers.set("Content-Encoding", encoding);
+            }
+            exchange.sendResponseHeaders(HTTP_OK, bytes.length > 0 ? bytes.length : -1);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+
+        /**
+         * The response is not cached and has no entity tag, the body is the message of the exception in one line.
+         */
+        private void sendBadRequest(HttpExchange exchange, String message) throws IOException {
+            byte[] bytes = (String.valueOf(message).replace('\n', ' ') + "\n").getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", TEXT_PLAIN);
+            exchange.sendResponseHeaders(HTTP_BAD_REQUEST, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+
+        /**
+         * Requests that arrive while a response is being created share its result instead of creating their own,
+         * if creating the response fails, all of them fail.
+         */
+        private ResponseWriter getCoalescedResponse(Map<String, String> parameters) {
+            CompletableFuture<ResponseWriter> future = new CompletableFuture<>();
+            CompletableFuture<ResponseWriter> inFlight = inFlightResponses.putIfAbsent(parameters, future);
+            if (inFlight != null) {
+                return inFlight.join();
+            }
+
+            try {
+                ResponseWriter response = responseFunction.apply(parameters);
+                future.complete(response);
+                return response;
+            }
+            catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+                throw throwable;
+            }
+            finally {
+                inFlightResponses.remove(parameters, future);
+            }
+        }
+
+        /**
+         * The last body is kept for each set of parameters, if the freshly rendered content is the same,
+         * the last body is reused together with its compressed forms.
+         */
+        private Body getBody(Map<String, String> parameters, byte[] bytes) {
+            Body body = lastBodies.get(parameters);
+            if (body == null || !body.hasContent(bytes)) {
+                body = new Body(bytes, Body.etag(bytes));
+                lastBodies.put(parameters, body);
+            }
+
+            return body;
+        }
+
+        private byte[] render(ResponseWriter response) {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                response.writeTo(out);
+                return out.toByteArray();
+            }
+            catch (Throwable throwable) {
+                return getStackTrace(throwable).getBytes(UTF_8);
+            }
+        }
+    }
+
+    /**
+     * The content of a response with its entity tag (a hash of the content) and its compressed forms,
+     * compressed forms are created when they are first needed.
+     */
+    private static class Body {
+        private final byte[] bytes;
+        private final String etag;
+        private final Map<String, byte[]> encodedBytes = new ConcurrentHashMap<>();
+
+        private Body(byte[] bytes, String etag) {
+            this.bytes = bytes;
+            this.etag = etag;
         }
-        catch (Throwable throwable) {
-            return getStackTrace(throwable);
+
+        private static String etag(byte[] bytes) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+                return "W/\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+            }
+            catch (NoSuchAlgorithmException exception) {
+                // every Java platform is required to support SHA-256
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        private String getEtag() {
+            return etag;
+        }
+
+        private boolean hasContent(byte[] content) {
+            return Arrays.equals(bytes, content);
+        }
+
+        private int getSize() {
+            return bytes.length;
+        }
+
+        /**
+         * @param encoding gzip, deflate or null (identity)
+         */
+        private byte[] getBytes(String encoding) {
+            return encoding != null ? encodedBytes.computeIfAbsent(encoding, this::encode) : bytes;
+        }
+
+        private byte[] encode(String encoding) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+            try (OutputStream encoder = encoding.equals(GZIP) ? new GZIPOutputStream(out) : new DeflaterOutputStream(out)) {
+                encoder.write(bytes);
+            }
+            catch (IOException exception) {
+                // writing into memory does not fail
+                throw new UncheckedIOException(exception);
+            }
+
+            return out.toByteArray();
         }
     }
 
-    private String getStackTrace(Throwable throwable) {
+    private static String getStackTrace(Throwable throwable) {
         StringWriter sw = new StringWriter();
         PrintWriter pw = new PrintWriter(sw, true);
         throwable.printStackTrace(pw);
@@ -68,6 +516,7 @@ public class SimpleHttpServer {
     }
 
     private void stop() {
+        eventStreams.values().forEach(EventStream::close);
         server.stop(0);
         System.out.println("Shutting down...");
     }
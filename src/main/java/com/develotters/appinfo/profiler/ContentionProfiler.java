@@ -0,0 +1,216 @@
+package com.develotters.appinfo.profiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.LockSupport;
+
+import com.develotters.appinfo.PropertyValue;
+
+/**
+ * Finds the contended locks in a bounded time window: thread contention monitoring is enabled for the duration of the window
+ * (if it is supported and was not enabled already) and the blocked/waited counts and times of the threads are compared
+ * at the start and at the end of the window. In the meantime the threads are sampled and the locks they are waiting for
+ * are counted by lock identity ({@link ThreadInfo#getLockName()}) together with the owners of the locks.
+ * Threads that wait for a condition (e.g.: idle threads of a pool) are not counted, only the threads that are blocked on a monitor
+ * or waiting for a lock that is owned by another thread (e.g.: {@link java.util.concurrent.locks.ReentrantLock}).
+ * If a sample takes longer than the interval, the next one is taken a whole interval later so the window still ends on time.
+ * Only one window can be profiled at a time, concurrent callers wait for the previous window to finish.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class ContentionProfiler {
+    public static final Duration DEFAULT_DURATION = Duration.ofSeconds(10);
+    public static final Duration MAX_DURATION = Duration.ofSeconds(60);
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(10);
+    public static final Duration MIN_INTERVAL = Duration.ofMillis(1);
+    private static final int TOP = 10;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * @param duration the length of the window, at most {@link #MAX_DURATION}
+     * @param interval the time between two samples of the waiting threads, at least {@link #MIN_INTERVAL}
+     * @return the hottest locks ({@code contention.lock.#.*}, the names of at most 10 waiting threads are listed) and the threads that were blocked or waited the most ({@code contention.thread.#.*}),
+     * times are in milliseconds and they are -1 if contention monitoring is not supported
+     */
+    public synchronized Map<String, PropertyValue> profile(Duration duration, Duration interval) {
+        if (duration.isNegative() || duration.compareTo(MAX_DURATION) > 0) {
+            throw new IllegalArgumentException("Duration must be between 0 and " + MAX_DURATION + ": " + duration);
+        }
+        if (interval.compareTo(MIN_INTERVAL) < 0) {
+            throw new IllegalArgumentException("Interval must be at least " + MIN_INTERVAL + ": " + interval);
+        }
+
+        boolean supported = threadMXBean.isThreadContentionMonitoringSupported();
+        boolean wasEnabled = supported && threadMXBean.isThreadContentionMonitoringEnabled();
+        if (supported && !wasEnabled) {
+            threadMXBean.setThreadContentionMonitoringEnabled(true);
+        }
+
+        try {
+            Map<Long, ThreadInfo> startInfos = getThreadInfos();
+            Map<String, Lock> locks = new HashMap<>();
+            long currentThreadId = Thread.currentThread().threadId();
+            long intervalNanos = interval.toNanos();
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            long next = start;
+            do {
+                sample(locks, currentThreadId);
+                long now = System.nanoTime();
+                next += intervalNanos;
+                if (next - now < 0) {
+                    // the sample took longer than the interval, the missed samples are dropped instead of taking them back to back
+                    next = now + intervalNanos;
+                }
+                if (next - end > 0) {
+                    break;
+                }
+                LockSupport.parkNanos(next - now);
+            } while (!Thread.currentThread().isInterrupted());
+            Map<Long, ThreadInfo> endInfos = getThreadInfos();
+
+            Map<String, PropertyValue> props = new TreeMap<>();
+            props.put("contention.interval", PropertyValue.of((System.nanoTime() - start) / 1_000_000));
+            props.put("contention.monitoringSupported", PropertyValue.of(supported));
+            addLocks(locks, props);
+            endInfos.remove(currentThreadId);
+            addThreads(startInfos, endInfos, props);
+
+            return props;
+        }
+        finally {
+            if (supported && !wasEnabled) {
+                threadMXBean.setThreadContentionMonitoringEnabled(false);
+            }
+        }
+    }
+
+    private Map<Long, ThreadInfo> getThreadInfos() {
+        Map<Long, ThreadInfo> threadInfos = new HashMap<>();
+        for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0)) {
+            // null if the thread is not alive anymore
+            if (threadInfo != null) {
+                threadInfos.put(threadInfo.getThreadId(), threadInfo);
+            }
+        }
+
+        return threadInfos;
+    }
+
+    private void sample(Map<String, Lock> locks, long currentThreadId) {
+        for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0)) {
+            if (threadInfo != null && threadInfo.getThreadId() != currentThreadId && isContended(threadInfo)) {
+                locks.computeIfAbsent(threadInfo.getLockName(), ignored -> new Lock()).record(threadInfo);
+            }
+        }
+    }
+
+    private static boolean isContended(ThreadInfo threadInfo) {
+        return switch (threadInfo.getThreadState()) {
+            case BLOCKED -> threadInfo.getLockName() != null;
+            case WAITING, TIMED_WAITING -> threadInfo.getLockName() != null && threadInfo.getLockOwnerId() != -1;
+            default -> false;
+        };
+    }
+
+    private static void addLocks(Map<String, Lock> locks, Map<String, PropertyValue> props) {
+        List<Map.Entry<String, Lock>> top = locks.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, Lock> entry) -> entry.getValue().samples).reversed())
+            .limit(TOP)
+            .toList();
+        for (int i = 0; i < top.size(); i++) {
+            String prefix = "contention.lock." + i + ".";
+            Lock lock = top.get(i).getValue();
+            props.put(prefix + "name", PropertyValue.of(top.get(i).getKey()));
+            props.put(prefix + "samples", PropertyValue.of(lock.samples));
+            props.put(prefix + "owner", PropertyValue.of(lock.getTopOwner()));
+            props.put(prefix + "waitingThreadCount", PropertyValue.of(lock.waitingThreads.size()));
+            props.put(prefix + "waitingThreads", PropertyValue.of(String.join(", ", lock.waitingThreads.stream().limit(TOP).toList())));
+        }
+    }
+
+    /**
+     * Threads that were not alive at the start of the window are compared to 0, threads that died are not reported.
+     */
+    private static void addThreads(Map<Long, ThreadInfo> startInfos, Map<Long, ThreadInfo> endInfos, Map<String, PropertyValue> props) {
+        List<ThreadDelta> top = endInfos.values().stream()
+            .map(endInfo -> ThreadDelta.of(startInfos.get(endInfo.getThreadId()), endInfo))
+            .filter(delta -> delta.blockedCount() > 0 || delta.waitedCount() > 0)
+            .sorted(Comparator.comparingLong(ThreadDelta::blockedTime)
+                .thenComparingLong(ThreadDelta::blockedCount)
+                .thenComparingLong(ThreadDelta::waitedTime)
+                .reversed())
+            .limit(TOP)
+            .toList();
+        for (int i = 0; i < top.size(); i++) {
+            String prefix = "contention.thread." + i + ".";
+            ThreadDelta delta = top.get(i);
+            props.put(prefix + "id", PropertyValue.of(delta.threadInfo().getThreadId()));
+            props.put(prefix + "name", PropertyValue.of(delta.threadInfo().getThreadName()));
+            props.put(prefix + "blockedCount", PropertyValue.of(delta.blockedCount()));
+            props.put(prefix + "blockedTime", PropertyValue.of(delta.blockedTime()));
+            props.put(prefix + "waitedCount", PropertyValue.of(delta.waitedCount()));
+            props.put(prefix + "waitedTime", PropertyValue.of(delta.waitedTime()));
+        }
+    }
+
+    /**
+     * The samples of the threads that were waiting for the lock and the owners of the lock at the time of the samples.
+     * Only the profiling thread uses it.
+     */
+    private static class Lock {
+        private final Map<String, Long> owners = new HashMap<>();
+        private final TreeSet<String> waitingThreads = new TreeSet<>();
+        private long samples;
+
+        private void record(ThreadInfo threadInfo) {
+            samples++;
+            waitingThreads.add(threadInfo.getThreadName());
+            if (threadInfo.getLockOwnerName() != null) {
+                owners.merge(threadInfo.getLockOwnerName(), 1L, Long::sum);
+            }
+        }
+
+        /**
+         * @return the thread that owned the lock the most times it was sampled, null if the owner was never known
+         */
+        private String getTopOwner() {
+            return owners.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        }
+    }
+
+    /**
+     * @param blockedTime -1 if contention monitoring is not available
+     * @param waitedTime -1 if contention monitoring is not available
+     */
+    private record ThreadDelta(ThreadInfo threadInfo, long blockedCount, long blockedTime, long waitedCount, long waitedTime) {
+        private static ThreadDelta of(ThreadInfo start, ThreadInfo end) {
+            return new ThreadDelta(
+                end,
+                end.getBlockedCount() - (start != null ? start.getBlockedCount() : 0),
+                timeDelta(start != null ? start.getBlockedTime() : 0, end.getBlockedTime()),
+                end.getWaitedCount() - (start != null ? start.getWaitedCount() : 0),
+                timeDelta(start != null ? start.getWaitedTime() : 0, end.getWaitedTime())
+            );
+        }
+
+        /**
+         * The time is -1 at the start of the window if monitoring was just enabled, that counts as 0.
+         */
+        private static long timeDelta(long start, long end) {
+            return end >= 0 ? end - Math.max(0, start) : -1;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.develotters.appinfo.profiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples the stacks of all the threads at a fixed interval for a bounded duration and counts them in a {@link StackTrie},
+ * if a sample takes longer than the interval, the next one is taken a whole interval later and the session still ends on time.
+ * Dumping the stacks brings the JVM to a safepoint: every application thread is stopped while the stacks are walked
+ * (this takes longer with more threads and deeper stacks), so every sample pauses the application and the samples are biased
+ * towards safepoints. The default interval (20 samples per second) keeps this cost low, shorter intervals should only be used
+ * for short sessions. In {@link Mode#CPU} mode the states of the threads are read first (this does not need a safepoint)
+ * and only the stacks of the runnable threads are dumped, if there are none there is no safepoint. Virtual threads are not sampled.
+ * Only one profiling session can run at a time, concurrent callers wait for the previous session to finish.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class SamplingProfiler {
+    public static final Duration DEFAULT_DURATION = Duration.ofSeconds(10);
+    public static final Duration MAX_DURATION = Duration.ofSeconds(60);
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(50);
+    public static final Duration MIN_INTERVAL = Duration.ofMillis(10);
+    private static final int MAX_DEPTH = 256;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * @param duration the time to profile for, at most {@link #MAX_DURATION}
+     * @param interval the time between two samples, at least {@link #MIN_INTERVAL}
+     * @param mode which threads to sample
+     * @return the stacks sampled
+     */
+    public synchronized StackTrie profile(Duration duration, Duration interval, Mode mode) {
+        if (duration.isNegative() || duration.compareTo(MAX_DURATION) > 0) {
+            throw new IllegalArgumentException("Duration must be between 0 and " + MAX_DURATION + ": " + duration);
+        }
+        if (interval.compareTo(MIN_INTERVAL) < 0) {
+            throw new IllegalArgumentException("Interval must be at least " + MIN_INTERVAL + ": " + interval);
+        }
+
+        StackTrie stackTrie = new StackTrie();
+        long currentThreadId = Thread.currentThread().threadId();
+        long intervalNanos = interval.toNanos();
+        long next = System.nanoTime();
+        long end = next + duration.toNanos();
+        do {
+            sample(stackTrie, currentThreadId, mode);
+            long now = System.nanoTime();
+            next += intervalNanos;
+            if (next - now < 0) {
+                // the sample took longer than the interval, the missed samples are dropped instead of taking them back to back
+                next = now + intervalNanos;
+            }
+            if (next - end > 0) {
+                break;
+            }
+            LockSupport.parkNanos(next - now);
+        } while (!Thread.currentThread().isInterrupted());
+
+        return stackTrie;
+    }
+
+    private void sample(StackTrie stackTrie, long currentThreadId, Mode mode) {
+        for (ThreadInfo threadInfo : dumpThreads(currentThreadId, mode)) {
+            if (threadInfo != null && threadInfo.getThreadId() != currentThreadId && mode.includes(threadInfo.getThreadState())) {
+                StackTraceElement[] stackTrace = threadInfo.getStackTrace();
+                if (stackTrace.length > 0) {
+                    stackTrie.add(stackTrace);
+                }
+            }
+        }
+    }
+
+    private ThreadInfo[] dumpThreads(long currentThreadId, Mode mode) {
+        if (mode == Mode.WALL) {
+            return threadMXBean.dumpAllThreads(false, false, MAX_DEPTH);
+        }
+
+        long[] threadIds = Arrays.stream(threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0))
+            .filter(threadInfo -> threadInfo != null && threadInfo.getThreadId() != currentThreadId && mode.includes(threadInfo.getThreadState()))
+            .mapToLong(ThreadInfo::getThreadId)
+            .toArray();
+        return threadIds.length > 0 ? threadMXBean.getThreadInfo(threadIds, MAX_DEPTH) : new ThreadInfo[0];
+    }
+
+    public enum Mode {
+        /**
+         * Samples only the threads that are {@link Thread.State#RUNNABLE}, this shows where the CPU time goes,
+         * threads blocked in native code (e.g.: waiting on a socket) are also reported as runnable.
+         */
+        CPU,
+
+        /**
+         * Samples all the threads regardless of their state, this shows where the wall time goes.
+         */
+        WALL;
+
+        private boolean includes(Thread.State state) {
+            return this == WALL || state == Thread.State.RUNNABLE;
+        }
+
+        /**
+         * @return the mode with the given name, case-insensitive
+         */
+        public static Mode of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            }
+            catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException("Unknown mode: " + name + ", available modes: " + Arrays.toString(values()), exception);
+            }
+        }
+    }
+}
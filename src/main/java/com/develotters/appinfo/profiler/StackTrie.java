@@ -0,0 +1,129 @@
+package com.develotters.appinfo.profiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.develotters.appinfo.format.Utf8Writer;
+
+/**
+ * Counts stack samples in a trie where every node is a frame, stacks that share a prefix (from the bottom of the stack)
+ * share the nodes of the prefix. Frames are interned so a frame is stored only once regardless of how many stacks contain it.
+ * Not thread-safe, it is meant to be filled by one sampler thread and read after sampling.
+ *
+ * @author Jonatan Ivanov
+ */
+public final class StackTrie {
+    private final Map<StackTraceElement, Integer> frameIds = new HashMap<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final Node root = new Node(-1);
+    private long sampleCount;
+
+    /**
+     * @param stackTrace the stack trace of a thread, the top of the stack first (as returned by {@link Thread#getStackTrace()})
+     */
+    public void add(StackTraceElement[] stackTrace) {
+        Node node = root;
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            node = node.child(intern(stackTrace[i]));
+        }
+        node.count++;
+        sampleCount++;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return the number of distinct frames (methods)
+     */
+    public int getFrameCount() {
+        return names.size();
+    }
+
+    /**
+     * Writes the stacks in the collapsed format that flame graph tools understand:
+     * one line per distinct stack, frames from the bottom of the stack separated by {@code ;} followed by the number of samples.
+     */
+    public void writeCollapsed(OutputStream out) throws IOException {
+        Utf8Writer writer = new Utf8Writer(out);
+        writeCollapsed(writer, root, new int[64], 0);
+        writer.flush();
+    }
+
+    private void writeCollapsed(Utf8Writer writer, Node node, int[] path, int depth) throws IOException {
+        if (node.count > 0 && depth > 0) {
+            for (int i = 0; i < depth; i++) {
+                if (i > 0) {
+                    writer.write(';');
+                }
+                writer.write(names.get(path[i]));
+            }
+            writer.write(' ').write(node.count).write('\n');
+        }
+
+        for (int i = 0; i < node.childCount; i++) {
+            Node child = node.children[i];
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, path.length * 2);
+            }
+            path[depth] = child.nameId;
+            writeCollapsed(writer, child, path, depth + 1);
+        }
+    }
+
+    /**
+     * Frames of the same method (e.g.: different lines) are interned to the same name.
+     */
+    private int intern(StackTraceElement frame) {
+        Integer id = frameIds.get(frame);
+        if (id == null) {
+            String name = frame.getClassName() + '.' + frame.getMethodName();
+            id = nameIds.get(name);
+            if (id == null) {
+                id = names.size();
+                names.add(name);
+                nameIds.put(name, id);
+            }
+            frameIds.put(frame, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Children are kept in an array and searched linearly since most nodes have only a few children.
+     */
+    private static class Node {
+        private final int nameId;
+        private Node[] children = new Node[0];
+        private int childCount;
+        private long count;
+
+        private Node(int nameId) {
+            this.nameId = nameId;
+        }
+
+        private Node child(int nameId) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i].nameId == nameId) {
+                    return children[i];
+                }
+            }
+
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, Math.max(2, childCount * 2));
+            }
+            Node child = new Node(nameId);
+            children[childCount++] = child;
+
+            return child;
+        }
+    }
+}
@@ -2,12 +2,25 @@ package com.develotters.appinfo;
 
 import org.assertj.core.api.Condition;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Predicate;
 import org.junit.jupiter.api.Test;
 
 import static com.develotters.appinfo.test.PropertiesAssert.assertPropertyExists;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * @author Jonatan Ivanov
@@ -102,4 +115,316 @@ public class AppInfoTest {
         assertThat(properties.keySet()).are(osOrSystemProperty);
         assertThat(prettyPrint.split(System.getProperty("line.separator"))).are(osOrSystemProperty);
     }
+
+    @Test
+    public void cachedPropertiesTest() {
+        AppInfo appInfo = AppInfo.builder()
+            .components(AppInfoComponent.SYSTEM_PROPERTIES, AppInfoComponent.THREAD)
+            .ttl(AppInfoComponent.THREAD, Duration.ofHours(1))
+            .build();
+        Map<String, String> properties = appInfo.getProperties();
+        new Thread(() -> {}).start();
+
+        assertThat(appInfo.getProperties("thread.")).isEqualTo(appInfo.getProperties("thread."));
+        assertThat(appInfo.getProperties().get("thread.totalStartedThreadCount")).isEqualTo(properties.get("thread.totalStartedThreadCount"));
+        assertThat(appInfo.getProperties().get("system.nanoTime")).isNotEqualTo(properties.get("system.nanoTime"));
+    }
+
+    @Test
+    public void changedSystemPropertiesTest() {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.SYSTEM_PROPERTIES);
+        assertThat(appInfo.getValues()).containsKey("java.version").doesNotContainKey("appInfo.test");
+
+        System.setProperty("appInfo.test", "42");
+        try {
+            assertThat(appInfo.getValues()).containsKey("java.version").containsEntry("appInfo.test", PropertyValue.of("42"));
+        }
+        finally {
+            System.clearProperty("appInfo.test");
+        }
+        assertThat(appInfo.getValues()).doesNotContainKey("appInfo.test");
+    }
+
+    @Test
+    public void threadStackDepthTest() {
+        String key = "thread." + Thread.currentThread().threadId() + ".info";
+        AppInfo withoutStacks = new AppInfo(AppInfoComponent.THREAD);
+        AppInfo withStacks = AppInfo.builder().components(AppInfoComponent.THREAD).threadStackDepth(5).build();
+
+        assertThat(withoutStacks.getProperties().get(key)).doesNotContain("\tat ");
+        assertThat(withStacks.getProperties().get(key)).contains("\tat ");
+    }
+
+    @Test
+    public void requestedComponentsTest() {
+        AppInfo appInfo = AppInfo.builder()
+            .components(AppInfoComponent.OPERATING_SYSTEM, AppInfoComponent.MEMORY, AppInfoComponent.THREAD, AppInfoComponent.INSTRUMENTATION)
+            .build();
+        String key = "thread." + Thread.currentThread().threadId() + ".info";
+
+        Map<String, PropertyValue> values = appInfo.getValues(AppInfoComponent.of(List.of("operating-system", "runtime")), List.of(), 0);
+        assertThat(values.keySet()).isNotEmpty().allSatisfy(valueKey -> assertThat(valueKey).startsWith("os."));
+        assertThat(appInfo.getValues(EnumSet.of(AppInfoComponent.THREAD), List.of(key), 5).get(key).asString()).contains("\tat ");
+        assertThat(appInfo.getValues(EnumSet.of(AppInfoComponent.THREAD), List.of(key), 0).get(key).asString()).doesNotContain("\tat ");
+        assertThat(appInfo.getValues("instrumentation.collection.MEMORY.count")).containsEntry("instrumentation.collection.MEMORY.count", PropertyValue.of(0L));
+        assertThatThrownBy(() -> AppInfoComponent.of(List.of("nope"))).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("nope");
+    }
+
+    @Test
+    public void keyTemplatesTest() {
+        for (AppInfoComponent component : AppInfoComponent.values()) {
+            if (!component.getKeyTemplates().isEmpty()) {
+                assertThat(new AppInfo(component).getProperties().keySet())
+                    .allSatisfy(key -> assertThat(component.getKeyTemplates()).contains(key.replaceAll("\\d+", "#")));
+            }
+        }
+    }
+
+    @Test
+    public void timedOutComponentTest() {
+        AppInfo appInfo = AppInfo.builder()
+            .components(AppInfoComponent.OPERATING_SYSTEM, AppInfoComponent.THREAD)
+            .timeout(AppInfoComponent.THREAD, Duration.ofNanos(1))
+            .build();
+        Map<String, String> properties = appInfo.getProperties();
+
+        assertThat(properties).containsKey("os.name");
+        assertThat(properties).containsEntry("appInfo.THREAD.timedOut", "true");
+        assertThat(properties).doesNotContainKey("thread.threadCount");
+    }
+
+    @Test
+    public void streamingPrettyPrintTest() throws IOException {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.ENVIRONMENT_VARIABLES);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        appInfo.prettyPrint(out);
+
+        assertThat(out.toString(UTF_8)).isEqualTo(appInfo.prettyPrint());
+    }
+
+    @Test
+    public void typedValuesTest() {
+        Map<String, PropertyValue> values = new AppInfo(AppInfoComponent.MEMORY, AppInfoComponent.OPERATING_SYSTEM, AppInfoComponent.THREAD).getValues();
+
+        assertThat(values.get("memory.heapMemoryUsage.used")).isInstanceOf(PropertyValue.LongValue.class);
+        assertThat(values.get("os.systemLoadAverage")).isInstanceOf(PropertyValue.DoubleValue.class);
+        assertThat(values.get("thread.isThreadCpuTimeSupported")).isInstanceOf(PropertyValue.BooleanValue.class);
+        assertThat(values.get("memoryPool.0.usage")).isInstanceOfSatisfying(PropertyValue.ObjectValue.class,
+            value -> assertThat(value.value()).isInstanceOf(MemoryUsage.class));
+        assertThat(values.get("thread." + Thread.currentThread().threadId() + ".info")).isInstanceOfSatisfying(PropertyValue.ObjectValue.class,
+            value -> assertThat(value.value()).isInstanceOf(ThreadInfo.class));
+    }
+
+    @Test
+    public void ratesTest() throws InterruptedException {
+        AppInfo appInfo = AppInfo.builder()
+            .components(AppInfoComponent.RATE)
+            .ttl(AppInfoComponent.RATE, Duration.ZERO)
+            .build();
+        Map<String, PropertyValue> sinceStart = appInfo.getValues();
+        Thread.sleep(50);
+        Map<String, PropertyValue> values = appInfo.getValues();
+
+        assertThat(sinceStart).containsKeys("rate.interval", "rate.gc.overhead", "rate.process.cpuUsage");
+        // the samples are compared to the one closest to the start of the window: the first call or the start of the JVM
+        assertThat(((PropertyValue.LongValue) values.get("rate.interval")).value()).isBetween(50L, ManagementFactory.getRuntimeMXBean().getUptime());
+        assertThat(((PropertyValue.DoubleValue) values.get("rate.gc.overhead")).value()).isBetween(0.0, 100.0);
+        assertThat(values.get("rate.thread." + Thread.currentThread().threadId() + ".cpuUsage")).isInstanceOf(PropertyValue.DoubleValue.class);
+        assertThat(values).containsKeys("rate.compilation.overhead", "rate.classLoading.loadRate", "rate.memory.allocationRate");
+    }
+
+    @Test
+    public void topThreadsTest() {
+        AppInfo appInfo = AppInfo.builder()
+            .components(AppInfoComponent.TOP_THREADS)
+            .ttl(AppInfoComponent.TOP_THREADS, Duration.ZERO)
+            .topThreadCount(1_000)
+            .build();
+        appInfo.getValues();
+        List<byte[]> garbage = new ArrayList<>();
+        long end = System.nanoTime() + Duration.ofMillis(50).toNanos();
+        while (System.nanoTime() < end) {
+            garbage.add(new byte[1024]);
+        }
+        Map<String, PropertyValue> values = appInfo.getValues();
+
+        assertThat(garbage).isNotEmpty();
+        assertThat(values).containsKeys("topThreads.interval", "topThreads.cpu.0.id", "topThreads.cpu.0.cpuUsage", "topThreads.allocation.0.allocatedBytes");
+        PropertyValue currentThreadId = PropertyValue.of(Thread.currentThread().threadId());
+        assertThat(values.entrySet()).anySatisfy(entry -> {
+            assertThat(entry.getKey()).startsWith("topThreads.allocation.").endsWith(".id");
+            assertThat(entry.getValue()).isEqualTo(currentThreadId);
+        });
+        assertThat(values.get("topThreads.cpu.0.state")).isInstanceOf(PropertyValue.ObjectValue.class);
+        assertThat(TopThreadsCalculator.top(new long[] { 5, -1, 7, 0, 3, 9 }, 3)).containsExactly(5, 2, 0);
+        assertThat(TopThreadsCalculator.top(new long[] { 5, 7 }, 3)).containsExactly(1, 0);
+        assertThat(TopThreadsCalculator.top(new long[] { 5, 7 }, 0)).isEmpty();
+    }
+
+    @Test
+    public void instrumentationTest() {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.OPERATING_SYSTEM, AppInfoComponent.INSTRUMENTATION);
+        appInfo.getValues();
+        Map<String, PropertyValue> values = appInfo.getValues("instrumentation.");
+
+        assertThat(values.get("instrumentation.collection.OPERATING_SYSTEM.count")).isEqualTo(PropertyValue.of(2L));
+        assertThat(values.get("instrumentation.collection.OPERATING_SYSTEM.totalTime")).isInstanceOfSatisfying(PropertyValue.LongValue.class,
+            value -> assertThat(value.value()).isPositive());
+        assertThat(values).containsKeys("instrumentation.collection.OPERATING_SYSTEM.maxTime", "instrumentation.collection.OPERATING_SYSTEM.p99Time");
+        assertThat(new AppInfo().getValues()).doesNotContainKey("instrumentation.collection.OPERATING_SYSTEM.count");
+    }
+
+    @Test
+    public void timerTest() {
+        Instrumentation instrumentation = new Instrumentation();
+        Instrumentation.Timer timer = instrumentation.timer("test");
+        for (int i = 1; i <= 100; i++) {
+            timer.record(i * 1_000L);
+        }
+        timer.recordError(new IllegalStateException());
+        timer.recordError(new IllegalStateException());
+        Map<String, PropertyValue> props = new TreeMap<>();
+        instrumentation.addProperties(props);
+
+        assertThat(instrumentation.timer("test")).isSameAs(timer);
+        assertThat(props).containsEntry("instrumentation.test.count", PropertyValue.of(100L))
+            .containsEntry("instrumentation.test.totalTime", PropertyValue.of(5_050_000L))
+            .containsEntry("instrumentation.test.maxTime", PropertyValue.of(100_000L))
+            .containsEntry("instrumentation.test.p50Time", PropertyValue.of(53_247L))
+            .containsEntry("instrumentation.test.p99Time", PropertyValue.of(100_000L))
+            .containsEntry("instrumentation.test.errors.java.lang.IllegalStateException", PropertyValue.of(2L));
+    }
+
+    @Test
+    public void timerBucketsTest() {
+        for (long value : new long[] { 0, 1, 7, 8, 15, 16, 17, 3_000, 4_095, 4_096, 1_000_000_007, Long.MAX_VALUE - 1, Long.MAX_VALUE }) {
+            long upperBound = Instrumentation.Timer.bucketUpperBound(Instrumentation.Timer.bucketIndex(value));
+            assertThat(upperBound - value).isBetween(0L, value / 8);
+        }
+        // the buckets are contiguous
+        for (int index = 0; Instrumentation.Timer.bucketUpperBound(index) < Long.MAX_VALUE; index++) {
+            assertThat(Instrumentation.Timer.bucketIndex(Instrumentation.Timer.bucketUpperBound(index) + 1)).isEqualTo(index + 1);
+        }
+        assertThat(Instrumentation.Timer.bucketUpperBound(Instrumentation.Timer.bucketIndex(3_000))).isEqualTo(3_071);
+        assertThat(Instrumentation.Timer.bucketIndex(Long.MAX_VALUE)).isEqualTo((Long.SIZE - 3) * 8 - 1);
+    }
+
+    @Test
+    public void gcPauseTest() throws InterruptedException {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.GC_PAUSE);
+        System.gc();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!hasGcPause(appInfo.getValues()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Map<String, PropertyValue> values = appInfo.getValues();
+
+        assertThat(hasGcPause(values)).isTrue();
+        assertThat(values).containsKeys("gcPause.0.name", "gcPause.0.p99Time", "gcPause.0.reclaimedBytes");
+        assertThat(values.get("gcPause.0.concurrent")).isInstanceOf(PropertyValue.BooleanValue.class);
+        assertThat(GcPauseRecorder.isConcurrentCycle("ZGC Major Cycles")).isTrue();
+        assertThat(GcPauseRecorder.isConcurrentCycle("Shenandoah Cycles")).isTrue();
+        assertThat(GcPauseRecorder.isConcurrentCycle("ZGC Major Pauses")).isFalse();
+        assertThat(GcPauseRecorder.isConcurrentCycle("G1 Young Generation")).isFalse();
+        assertThat(values.entrySet()).anySatisfy(entry -> {
+            assertThat(entry.getKey()).matches("gcPause\\.\\d+\\.cause\\.\\d+\\.name");
+            assertThat(entry.getValue().asString()).isEqualTo("System.gc()");
+        });
+    }
+
+    @Test
+    public void nativeMemoryTest() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        Map<String, PropertyValue> values = new AppInfo(AppInfoComponent.NATIVE_MEMORY).getValues();
+
+        assertThat(buffer.isDirect()).isTrue();
+        assertThat(values).containsKeys("nativeMemory.nmt.enabled", "nativeMemory.bufferPool.0.name", "nativeMemory.bufferPool.0.memoryUsed");
+        assertThat(values).containsValue(PropertyValue.of("direct"));
+    }
+
+    @Test
+    public void nmtSummaryParsingTest() {
+        String output = """
+            Native Memory Tracking:
+
+            Total: reserved=3009745882, committed=127566810
+                   malloc: 4715482 #18416
+                   mmap:   reserved=3005030400, committed=122851328
+
+            -                 Java Heap (reserved=1574961152, committed=98566144)
+                                        (mmap: reserved=1574961152, committed=98566144)
+
+            -                     Class (reserved=1073888133, committed=539525)
+                                        (classes #1530)
+                                        (    reserved=67108864, committed=2752512)
+
+            -    Native Memory Tracking (reserved=298752, committed=298752)
+            """;
+        NativeMemoryReader.NmtSummary summary = NativeMemoryReader.parse(output, 42);
+
+        assertThat(summary.error()).isNull();
+        assertThat(summary.reserved()).isEqualTo(3009745882L);
+        assertThat(summary.committed()).isEqualTo(127566810L);
+        assertThat(summary.categories()).containsExactly(
+            new NativeMemoryReader.Category("Java Heap", 1574961152, 98566144),
+            new NativeMemoryReader.Category("Class", 1073888133, 539525),
+            new NativeMemoryReader.Category("Native Memory Tracking", 298752, 298752)
+        );
+        assertThat(NativeMemoryReader.parse("Native memory tracking is not enabled", 42).error()).isEqualTo("Native memory tracking is not enabled");
+    }
+
+    @Test
+    public void heapHistogramTest() throws InterruptedException {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.HEAP_HISTOGRAM);
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        Map<String, PropertyValue> values = appInfo.getValues();
+        while (!values.containsKey("heapHistogram.collectedAt") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            values = appInfo.getValues();
+        }
+
+        assertThat(values).containsKeys("heapHistogram.total.bytes", "heapHistogram.bySize.0.class", "heapHistogram.byCount.0.instances");
+        assertThat(values).doesNotContainKey("heapHistogram.error");
+        assertThat(values.get("heapHistogram.inProgress")).isInstanceOf(PropertyValue.BooleanValue.class);
+    }
+
+    @Test
+    public void heapHistogramParsingTest() {
+        String output = """
+             num     #instances         #bytes  class name (module)
+            -------------------------------------------------------
+               1:          5210         243760  [B (java.base@25)
+               2:          1539         186360  java.lang.Class (java.base@25)
+               3:          7105         122520  java.lang.String (java.base@25)
+            Total         13854         552640
+            """;
+        HeapHistogramCollector.Histogram histogram = HeapHistogramCollector.parse(output, 42, 1);
+
+        assertThat(histogram.error()).isNull();
+        assertThat(histogram.instances()).isEqualTo(13854);
+        assertThat(histogram.bytes()).isEqualTo(552640);
+        assertThat(histogram.topBySize()).extracting(HeapHistogramCollector.Row::className).containsExactly("[B", "java.lang.Class", "java.lang.String");
+        assertThat(histogram.topByCount()).extracting(HeapHistogramCollector.Row::className).containsExactly("java.lang.String", "[B", "java.lang.Class");
+    }
+
+    @Test
+    public void jfrTest() throws InterruptedException {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.JFR);
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        Map<String, PropertyValue> values = appInfo.getValues();
+        while ((!values.containsKey("jfr.allocation.top.0.class") || !PropertyValue.TRUE.equals(values.get("jfr.running"))) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            values = appInfo.getValues();
+        }
+
+        assertThat(values).containsEntry("jfr.running", PropertyValue.TRUE);
+        assertThat(values).doesNotContainKey("jfr.error");
+        assertThat(values).containsKeys("jfr.safepoint.p99Time", "jfr.monitorEnter.count", "jfr.threadPark.maxTime", "jfr.allocation.top.0.sampledBytes");
+    }
+
+    private boolean hasGcPause(Map<String, PropertyValue> values) {
+        return values.entrySet().stream()
+            .anyMatch(entry -> entry.getKey().matches("gcPause\\.\\d+\\.count") && !entry.getValue().equals(PropertyValue.of(0L)));
+    }
 }
@@ -0,0 +1,42 @@
+package com.develotters.appinfo;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class KeyMatcherTest {
+
+    @Test
+    public void matchesTest() {
+        KeyMatcher keyMatcher = KeyMatcher.compile(List.of("OS.", "heapmemory", "she", "hers"));
+
+        assertThat(keyMatcher.matches("os.name")).isTrue();
+        assertThat(keyMatcher.matches("memory.heapMemoryUsage.used")).isTrue();
+        assertThat(keyMatcher.matches("ushers")).isTrue();
+        assertThat(keyMatcher.matches("java.version")).isFalse();
+        assertThat(keyMatcher.matches("")).isFalse();
+    }
+
+    @Test
+    public void emptyKeyMatchesEverythingTest() {
+        KeyMatcher keyMatcher = KeyMatcher.compile(List.of(""));
+
+        assertThat(keyMatcher.matches("os.name")).isTrue();
+        assertThat(keyMatcher.mayMatch(AppInfoComponent.THREAD)).isTrue();
+    }
+
+    @Test
+    public void mayMatchTest() {
+        assertThat(KeyMatcher.compile(List.of("os")).mayMatch(AppInfoComponent.OPERATING_SYSTEM)).isTrue();
+        assertThat(KeyMatcher.compile(List.of("os")).mayMatch(AppInfoComponent.SYSTEM_PROPERTIES)).isTrue();
+        assertThat(KeyMatcher.compile(List.of("os")).mayMatch(AppInfoComponent.THREAD)).isFalse();
+        assertThat(KeyMatcher.compile(List.of("totalLoadedClassCount")).mayMatch(AppInfoComponent.CLASS_LOADING)).isTrue();
+        assertThat(KeyMatcher.compile(List.of("thread.42.cpu")).mayMatch(AppInfoComponent.THREAD)).isTrue();
+        assertThat(KeyMatcher.compile(List.of("gc.1")).mayMatch(AppInfoComponent.GARBAGE_COLLECTOR)).isTrue();
+        assertThat(KeyMatcher.compile(List.of("gc.1")).mayMatch(AppInfoComponent.MEMORY)).isFalse();
+    }
+}
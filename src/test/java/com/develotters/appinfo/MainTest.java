@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 
 import static com.develotters.appinfo.test.PropertiesAssert.assertPropertyDoesNotExist;
 import static com.develotters.appinfo.test.PropertiesAssert.assertPropertyExists;
+import static org.assertj.core.api.Assertions.assertThat;
 
 /**
  * @author Jonatan Ivanov
@@ -60,4 +61,12 @@ public class MainTest {
         assertPropertyDoesNotExist("os.name", content);
         assertPropertyDoesNotExist("thread.threadCount", content);
     }
+
+    @Test
+    public void mainJsonTest() throws IOException {
+        String[] args = {"--format", "json", "totalLoadedClassCount"};
+        Main.main(args);
+
+        assertThat(out.toString()).matches("\\{\"classLoading\\.totalLoadedClassCount\":\\d+}\\R");
+    }
 }
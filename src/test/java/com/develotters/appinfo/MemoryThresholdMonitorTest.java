@@ -0,0 +1,99 @@
+package com.develotters.appinfo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class MemoryThresholdMonitorTest {
+    @Test
+    public void thresholdCrossingTest() throws InterruptedException {
+        List<Long> thresholds = getUsageThresholds();
+        Map<String, PropertyValue> collected;
+        try (MemoryThresholdMonitor monitor = new MemoryThresholdMonitor(0.001, 0.001, MemoryThresholdMonitor.Capture.NONE).start()) {
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            do {
+                System.gc();
+                Thread.sleep(10);
+                collected = monitor.getValues();
+            } while (collected.get("memoryThreshold.eventCount").equals(PropertyValue.of(0L)) && System.nanoTime() < deadline);
+        }
+
+        Map<String, PropertyValue> values = collected;
+        assertThat(values).containsEntry("memoryThreshold.capture", PropertyValue.of("NONE"));
+        assertThat(values.get("memoryThreshold.eventCount")).isInstanceOfSatisfying(PropertyValue.LongValue.class,
+            value -> assertThat(value.value()).isPositive());
+        assertThat(values.get("memoryThreshold.event.0.type").asString()).isIn("usage", "collectionUsage");
+        assertThat(values.get("memoryThreshold.event.0.poolName").asString()).isNotEmpty();
+        assertThat(values.get("memoryThreshold.event.0.used")).isInstanceOfSatisfying(PropertyValue.LongValue.class,
+            used -> assertThat(used.value()).isGreaterThanOrEqualTo(((PropertyValue.LongValue) values.get("memoryThreshold.event.0.threshold")).value()));
+        assertThat(values).doesNotContainKey("memoryThreshold.event.0.capture");
+        assertThat(getUsageThresholds()).isEqualTo(thresholds);
+    }
+
+    @Test
+    public void threadDumpCaptureTest() throws InterruptedException {
+        Map<String, PropertyValue> collected;
+        try (MemoryThresholdMonitor monitor = new MemoryThresholdMonitor(0.001, 0.001, MemoryThresholdMonitor.Capture.THREAD_DUMP).start()) {
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            do {
+                System.gc();
+                Thread.sleep(10);
+                collected = monitor.getValues();
+            } while (findCapture(collected) == null && System.nanoTime() < deadline);
+        }
+
+        assertThat(collected).containsEntry("memoryThreshold.capture", PropertyValue.of("THREAD_DUMP"));
+        assertThat(findCapture(collected)).isNotNull().contains("\"" + Thread.currentThread().getName() + "\"");
+    }
+
+    @Test
+    public void heapHistogramCaptureTest() {
+        String first = MemoryThresholdMonitor.Capture.HEAP_HISTOGRAM.take();
+        String second = MemoryThresholdMonitor.Capture.HEAP_HISTOGRAM.take();
+        Map<String, PropertyValue> histogram = new TreeMap<>();
+        HeapHistogramCollector.getInstance().addProperties(histogram);
+
+        // the histogram might have been taken by another test in the last minute
+        assertThat(histogram).containsKey("heapHistogram.bySize.0.class");
+        assertThat(first).satisfiesAnyOf(
+            capture -> assertThat(capture).isNull(),
+            capture -> assertThat(capture).startsWith(histogram.get("heapHistogram.bySize.0.class").asString() + " ")
+        );
+        assertThat(second).isNull();
+        assertThat(MemoryThresholdMonitor.Capture.NONE.take()).isNull();
+    }
+
+    @Test
+    public void invalidArgumentsTest() {
+        assertThatThrownBy(() -> new MemoryThresholdMonitor(101, 80, MemoryThresholdMonitor.Capture.NONE)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MemoryThresholdMonitor(80, -1, MemoryThresholdMonitor.Capture.NONE)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MemoryThresholdMonitor(80, 80, MemoryThresholdMonitor.Capture.NONE, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(MemoryThresholdMonitor.Capture.of("heap-histogram")).isEqualTo(MemoryThresholdMonitor.Capture.HEAP_HISTOGRAM);
+    }
+
+    private static String findCapture(Map<String, PropertyValue> values) {
+        return values.entrySet().stream()
+            .filter(entry -> entry.getKey().matches("memoryThreshold\\.event\\.\\d+\\.capture"))
+            .map(entry -> entry.getValue().asString())
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static List<Long> getUsageThresholds() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(MemoryPoolMXBean::isUsageThresholdSupported)
+            .map(MemoryPoolMXBean::getUsageThreshold)
+            .toList();
+    }
+}
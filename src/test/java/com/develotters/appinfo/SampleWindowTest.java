@@ -0,0 +1,41 @@
+package com.develotters.appinfo;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class SampleWindowTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void advanceTest() {
+        SampleWindow<Long> window = new SampleWindow<>(Duration.ofSeconds(10), Long::longValue);
+        assertThat(window.advance(0L)).isNull();
+        window = new SampleWindow<>(Duration.ofSeconds(10), Long::longValue);
+        window.add(0L);
+
+        assertThat(window.advance(100 * SECOND)).isEqualTo(0L);
+        assertThat(window.advance(100 * SECOND + SECOND / 2)).isEqualTo(100 * SECOND);
+        for (long second = 101; second <= 115; second++) {
+            window.advance(second * SECOND);
+        }
+        assertThat(window.advance(116 * SECOND)).isEqualTo(106 * SECOND);
+        assertThat(window.advance(116 * SECOND + SECOND / 4)).isEqualTo(106 * SECOND);
+    }
+
+    @Test
+    public void samplesAreBoundedTest() {
+        SampleWindow<Long> window = new SampleWindow<>(Duration.ofSeconds(10), Long::longValue);
+        window.add(0L);
+        for (long time = SECOND; time < 100 * SECOND; time += SECOND / 100) {
+            assertThat(window.advance(time)).isBetween(time - 11 * SECOND, time);
+        }
+
+        assertThat(window.size()).isLessThanOrEqualTo(SampleWindow.RESOLUTION + 2);
+    }
+}
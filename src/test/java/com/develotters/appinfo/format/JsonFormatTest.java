@@ -0,0 +1,49 @@
+package com.develotters.appinfo.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.develotters.appinfo.PropertyValue;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class JsonFormatTest {
+    private final Map<String, PropertyValue> values = new TreeMap<>(Map.of(
+        "java.version", PropertyValue.of("25"),
+        "java.version.date", PropertyValue.of("2025-09-16"),
+        "java.vendor", PropertyValue.of("\"quoted\"\n"),
+        "gc.0.collectionCount", PropertyValue.of(42L),
+        "gc.0-x", PropertyValue.of(true),
+        "os.systemLoadAverage", PropertyValue.of(1.5),
+        "thread.deadlockedThreads", PropertyValue.NULL
+    ));
+
+    @Test
+    public void flatTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonFormat.write(values, out);
+
+        assertThat(out.toString(UTF_8)).isEqualTo(
+            "{\"gc.0-x\":true,\"gc.0.collectionCount\":42,\"java.vendor\":\"\\\"quoted\\\"\\n\",\"java.version\":\"25\",\"java.version.date\":\"2025-09-16\","
+            + "\"os.systemLoadAverage\":1.5,\"thread.deadlockedThreads\":null}"
+        );
+    }
+
+    @Test
+    public void nestedTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonFormat.writeNested(values, out);
+
+        assertThat(out.toString(UTF_8)).isEqualTo(
+            "{\"gc\":{\"0\":{\"collectionCount\":42},\"0-x\":true},\"java\":{\"vendor\":\"\\\"quoted\\\"\\n\",\"version\":{\"\":\"25\",\"date\":\"2025-09-16\"}},"
+            + "\"os\":{\"systemLoadAverage\":1.5},\"thread\":{\"deadlockedThreads\":null}}"
+        );
+    }
+}
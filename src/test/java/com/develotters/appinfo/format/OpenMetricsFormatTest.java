@@ -0,0 +1,66 @@
+package com.develotters.appinfo.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import com.develotters.appinfo.AppInfo;
+import com.develotters.appinfo.AppInfoComponent;
+import com.develotters.appinfo.PropertyValue;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class OpenMetricsFormatTest {
+
+    @Test
+    public void metricsTest() throws IOException {
+        AppInfo appInfo = new AppInfo();
+        String content = write(appInfo.getValues(OpenMetricsFormat.COMPONENTS, OpenMetricsFormat.KEYS, 0));
+
+        assertThat(content).contains("# TYPE jvm_gc_collections counter\n");
+        assertThat(content).containsPattern("\njvm_gc_collections_total\\{gc=\"[^\"]+\"} \\d+\n");
+        assertThat(content).containsPattern("\njvm_memory_used_bytes\\{area=\"heap\"} \\d+\n");
+        assertThat(content).containsPattern("\njvm_memory_pool_used_bytes\\{pool=\"[^\"]+\"} \\d+\n");
+        assertThat(content).containsPattern("\njvm_threads_state\\{state=\"RUNNABLE\"} [1-9]\\d*\n");
+        assertThat(content).containsPattern("\njvm_classes_loaded_total \\d+\n");
+        assertThat(content).containsPattern("\njvm_uptime_seconds \\d+\\.\\d+\n");
+        assertThat(content).containsPattern("\njvm_gc_collection_time_seconds_total\\{gc=\"[^\"]+\"} \\d+\\.\\d+\n");
+        assertThat(content).doesNotContain("milliseconds");
+        assertThat(content).endsWith("# EOF\n");
+    }
+
+    @Test
+    public void onlyTheNeededComponentsAreCollectedTest() {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.GARBAGE_COLLECTOR, AppInfoComponent.MEMORY, AppInfoComponent.NATIVE_MEMORY, AppInfoComponent.RATE);
+        Map<String, PropertyValue> values = appInfo.getValues(OpenMetricsFormat.COMPONENTS, OpenMetricsFormat.KEYS, 0);
+
+        assertThat(values).containsKeys("gc.0.collectionCount", "memory.heapMemoryUsage.used");
+        assertThat(values.keySet()).noneMatch(key -> key.startsWith("nativeMemory.") || key.startsWith("rate."));
+    }
+
+    @Test
+    public void labelEscapingTest() throws IOException {
+        String content = write(Map.of(
+            "gc.0.name", PropertyValue.of("a \"quoted\\\" name"),
+            "gc.0.collectionCount", PropertyValue.of(42L)
+        ));
+
+        assertThat(content).isEqualTo("""
+            # TYPE jvm_gc_collections counter
+            # HELP jvm_gc_collections Number of collections
+            jvm_gc_collections_total{gc="a \\"quoted\\\\\\" name"} 42
+            # EOF
+            """);
+    }
+
+    private String write(Map<String, PropertyValue> values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OpenMetricsFormat.write(values, out);
+        return out.toString(UTF_8);
+    }
+}
@@ -0,0 +1,67 @@
+package com.develotters.appinfo.history;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static com.develotters.appinfo.AppInfoComponent.RUNTIME;
+import static com.develotters.appinfo.AppInfoComponent.THREAD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class HistorySamplerTest {
+
+    @Test
+    public void ringBufferTest() {
+        RingBuffer buffer = new RingBuffer(List.of("a", "b"), 3);
+        assertThat(buffer.snapshot(Long.MIN_VALUE).size()).isZero();
+
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(i * 10, new long[] { i, -i });
+        }
+
+        History history = buffer.snapshot(Long.MIN_VALUE);
+        assertThat(history.timestamps()).containsExactly(30, 40, 50);
+        assertThat(history.values("a")).containsExactly(3, 4, 5);
+        assertThat(history.values("b")).containsExactly(-3, -4, -5);
+        assertThat(history.values("c")).isNull();
+        assertThat(buffer.snapshot(40).timestamps()).containsExactly(40, 50);
+        assertThat(buffer.snapshot(60).size()).isZero();
+    }
+
+    @Test
+    public void sampleTest() {
+        HistorySampler sampler = new HistorySampler(Duration.ofHours(1), 10, Set.of(THREAD));
+        sampler.sample();
+        sampler.sample();
+
+        History history = sampler.getHistory();
+        assertThat(history.names()).containsExactly("thread.threadCount", "thread.daemonThreadCount", "thread.peakThreadCount", "thread.totalStartedThreadCount");
+        assertThat(history.size()).isEqualTo(2);
+        assertThat(history.values("thread.threadCount")).allSatisfy(count -> assertThat(count).isPositive());
+        assertThat(sampler.getHistory(Duration.ofHours(1)).size()).isEqualTo(2);
+    }
+
+    @Test
+    public void startTest() throws InterruptedException {
+        try (HistorySampler sampler = new HistorySampler(Duration.ofMillis(10), 100).start()) {
+            Thread.sleep(100);
+            History history = sampler.getHistory();
+            assertThat(history.size()).isPositive();
+            assertThat(history.names()).contains("memory.heapMemoryUsage.used", "gc.0.collectionCount", "classLoading.loadedClassCount");
+        }
+    }
+
+    @Test
+    public void unsupportedComponentTest() {
+        assertThatThrownBy(() -> new HistorySampler(Duration.ofSeconds(1), 10, Set.of(RUNTIME)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HistorySampler(Duration.ZERO, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,111 @@
+package com.develotters.appinfo.history;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.develotters.appinfo.AppInfo;
+import com.develotters.appinfo.AppInfoComponent;
+import com.develotters.appinfo.PropertyValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class SnapshotLogTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void roundTripTest() throws IOException {
+        List<Map<String, PropertyValue>> recorded = List.of(
+            Map.of("a", PropertyValue.of(5L), "b", PropertyValue.of(1.5), "c", PropertyValue.TRUE, "d", PropertyValue.NULL, "e", PropertyValue.of("x")),
+            Map.of("a", PropertyValue.of(-7L), "b", PropertyValue.of(1.5), "c", PropertyValue.FALSE, "e", PropertyValue.of("y"), "f", PropertyValue.of(Long.MIN_VALUE)),
+            Map.of("a", PropertyValue.of(Long.MAX_VALUE), "f", PropertyValue.of(Long.MAX_VALUE))
+        );
+        try (SnapshotRecorder recorder = new SnapshotRecorder(directory, Map::of, Duration.ofSeconds(1))) {
+            for (int i = 0; i < recorded.size(); i++) {
+                recorder.record(1_000 + i, recorded.get(i));
+            }
+        }
+
+        List<SnapshotLog.Snapshot> snapshots = read(directory);
+        assertThat(snapshots).hasSize(recorded.size());
+        for (int i = 0; i < recorded.size(); i++) {
+            assertThat(snapshots.get(i).timestamp()).isEqualTo(1_000 + i);
+            assertThat(snapshots.get(i).values()).containsExactlyInAnyOrderEntriesOf(recorded.get(i));
+        }
+    }
+
+    @Test
+    public void rotationTest() throws IOException {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.MEMORY, AppInfoComponent.THREAD);
+        try (SnapshotRecorder recorder = new SnapshotRecorder(directory, appInfo::getValues, Duration.ofSeconds(1), 4 * 1024, 2)) {
+            for (int i = 0; i < 50; i++) {
+                recorder.record(i * 1_000L, appInfo.getValues());
+            }
+        }
+
+        List<Path> segments = SnapshotLog.segments(directory);
+        assertThat(segments).hasSize(2);
+        assertThat(SnapshotLog.segmentIndex(segments.get(1))).isGreaterThan(1);
+        List<SnapshotLog.Snapshot> snapshots = read(directory);
+        assertThat(snapshots).isNotEmpty().hasSizeLessThan(50);
+        assertThat(snapshots.getLast().timestamp()).isEqualTo(49_000);
+        assertThat(snapshots.getLast().values()).containsKeys("memory.heapMemoryUsage.used", "thread.threadCount");
+    }
+
+    @Test
+    public void incompleteRecordTest() throws IOException {
+        try (SnapshotRecorder recorder = new SnapshotRecorder(directory, Map::of, Duration.ofSeconds(1))) {
+            recorder.record(1_000, Map.of("a", PropertyValue.of(1L)));
+            recorder.record(2_000, Map.of("a", PropertyValue.of(2L), "b", PropertyValue.of("test")));
+        }
+
+        Path segment = SnapshotLog.segments(directory).getFirst();
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 2));
+
+        List<SnapshotLog.Snapshot> snapshots = read(segment);
+        assertThat(snapshots).hasSize(1);
+        assertThat(snapshots.getFirst().values()).containsExactlyEntriesOf(Map.of("a", PropertyValue.of(1L)));
+    }
+
+    @Test
+    public void failedRecordTest() throws IOException {
+        PropertyValue failing = PropertyValue.of(new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("test");
+            }
+        });
+        try (SnapshotRecorder recorder = new SnapshotRecorder(directory, Map::of, Duration.ofSeconds(1))) {
+            recorder.record(1_000, Map.of("a", PropertyValue.of(1L)));
+            assertThatThrownBy(() -> recorder.record(2_000, Map.of("a", PropertyValue.of(2L), "b", failing)))
+                .isInstanceOf(IllegalStateException.class);
+            recorder.record(3_000, Map.of("a", PropertyValue.of(3L), "c", PropertyValue.of("test")));
+            recorder.record(4_000, Map.of("c", PropertyValue.of("test")));
+        }
+
+        assertThat(SnapshotLog.segments(directory)).hasSize(1);
+        List<SnapshotLog.Snapshot> snapshots = read(directory);
+        assertThat(snapshots).extracting(SnapshotLog.Snapshot::timestamp).containsExactly(1_000L, 3_000L, 4_000L);
+        assertThat(snapshots.get(1).values()).containsExactlyInAnyOrderEntriesOf(Map.of("a", PropertyValue.of(3L), "c", PropertyValue.of("test")));
+        assertThat(snapshots.get(2).values()).containsExactlyEntriesOf(Map.of("c", PropertyValue.of("test")));
+    }
+
+    private static List<SnapshotLog.Snapshot> read(Path path) throws IOException {
+        List<SnapshotLog.Snapshot> snapshots = new ArrayList<>();
+        SnapshotLog.read(path, snapshots::add);
+        return snapshots;
+    }
+}
@@ -0,0 +1,335 @@
+package com.develotters.appinfo.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.develotters.appinfo.AppInfo;
+import com.develotters.appinfo.AppInfoComponent;
+import com.develotters.appinfo.PropertyValue;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class SimpleHttpServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private HttpServer httpServer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        httpServer.stop(0);
+    }
+
+    @Test
+    public void responseTest() throws Exception {
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of("test: 42")).start();
+        HttpResponse<String> response = client.send(request("/"), BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("text/plain; charset=UTF-8");
+        assertThat(response.body()).isEqualTo("test: 42");
+    }
+
+    @Test
+    public void concurrentRequestsAreCoalescedTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> handlerThreads = new CopyOnWriteArrayList<>();
+        new SimpleHttpServer(httpServer, task -> handlerThreads.add(Thread.ofPlatform().daemon().start(task)), () -> {
+            calls.incrementAndGet();
+            try {
+                latch.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseWriter.of("test: " + calls.get());
+        }).start();
+
+        List<CompletableFuture<HttpResponse<String>>> responses = IntStream.range(0, 10)
+            .mapToObj(i -> client.sendAsync(request("/"), BodyHandlers.ofString()))
+            .toList();
+        awaitWaiting(handlerThreads, 10);
+        latch.countDown();
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.join().body()).isEqualTo("test: 1"));
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void failedCoalescedRequestsTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> handlerThreads = new CopyOnWriteArrayList<>();
+        new SimpleHttpServer(httpServer, task -> handlerThreads.add(Thread.ofPlatform().daemon().start(task)), () -> {
+            calls.incrementAndGet();
+            try {
+                latch.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("test failure");
+        }).start();
+
+        List<CompletableFuture<HttpResponse<String>>> responses = IntStream.range(0, 2)
+            .mapToObj(i -> client.sendAsync(request("/"), BodyHandlers.ofString()))
+            .toList();
+        awaitWaiting(handlerThreads, 2);
+        latch.countDown();
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.get(5, TimeUnit.SECONDS).body()).startsWith("java.lang.IllegalStateException: test failure"));
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void contentNegotiationTest() throws Exception {
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of("test: 42"))
+            .route("/", "application/json", () -> ResponseWriter.of("{\"test\":42}"))
+            .start();
+
+        HttpResponse<String> json = client.send(request("/", "text/html, application/json;q=0.9, */*;q=0.1"), BodyHandlers.ofString());
+        assertThat(json.headers().firstValue("Content-Type")).hasValue("application/json");
+        assertThat(json.headers().firstValue("Vary")).hasValue("Accept");
+        assertThat(json.body()).isEqualTo("{\"test\":42}");
+
+        HttpResponse<String> text = client.send(request("/", "*/*"), BodyHandlers.ofString());
+        assertThat(text.headers().firstValue("Content-Type")).hasValue("text/plain; charset=UTF-8");
+        assertThat(text.body()).isEqualTo("test: 42");
+    }
+
+    @Test
+    public void compressionTest() throws Exception {
+        String body = "test: 42\n".repeat(200);
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of(body)).start();
+
+        HttpRequest gzipRequest = HttpRequest.newBuilder(request("/"), (name, value) -> true).header("Accept-Encoding", "deflate;q=0.5, gzip").build();
+        HttpResponse<byte[]> gzip = client.send(gzipRequest, BodyHandlers.ofByteArray());
+        assertThat(gzip.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(gzip.headers().allValues("Vary")).contains("Accept-Encoding");
+        assertThat(gzip.body().length).isLessThan(body.length());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertThat(new String(in.readAllBytes(), UTF_8)).isEqualTo(body);
+        }
+
+        HttpRequest deflateRequest = HttpRequest.newBuilder(request("/"), (name, value) -> true).header("Accept-Encoding", "deflate").build();
+        HttpResponse<byte[]> deflate = client.send(deflateRequest, BodyHandlers.ofByteArray());
+        assertThat(deflate.headers().firstValue("Content-Encoding")).hasValue("deflate");
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(deflate.body()))) {
+            assertThat(new String(in.readAllBytes(), UTF_8)).isEqualTo(body);
+        }
+
+        HttpResponse<String> identity = client.send(request("/"), BodyHandlers.ofString());
+        assertThat(identity.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(identity.body()).isEqualTo(body);
+    }
+
+    @Test
+    public void conditionalRequestTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of("test: " + (calls.incrementAndGet() > 2 ? "changed" : "42"))).start();
+
+        HttpRequest firstRequest = HttpRequest.newBuilder(request("/"), (name, value) -> true).header("If-None-Match", "W/\"unknown\"").build();
+        HttpResponse<String> response = client.send(firstRequest, BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        assertThat(etag).matches("W/\"[0-9a-f]{32}\"");
+
+        HttpRequest conditionalRequest = HttpRequest.newBuilder(request("/"), (name, value) -> true).header("If-None-Match", etag).build();
+        HttpResponse<String> notModified = client.send(conditionalRequest, BodyHandlers.ofString());
+        assertThat(notModified.statusCode()).isEqualTo(304);
+        assertThat(notModified.body()).isEmpty();
+
+        HttpResponse<String> modified = client.send(conditionalRequest, BodyHandlers.ofString());
+        assertThat(modified.statusCode()).isEqualTo(200);
+        assertThat(modified.body()).isEqualTo("test: changed");
+        assertThat(modified.headers().firstValue("ETag").orElseThrow()).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void changedResponseIsNotReusedTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of("test: " + calls.incrementAndGet() + "\nx".repeat(1000))).start();
+
+        HttpRequest gzipRequest = HttpRequest.newBuilder(request("/"), (name, value) -> true).header("Accept-Encoding", "gzip").build();
+        HttpResponse<byte[]> first = client.send(gzipRequest, BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> second = client.send(gzipRequest, BodyHandlers.ofByteArray());
+
+        assertThat(gunzip(first.body())).startsWith("test: 1\n");
+        assertThat(gunzip(second.body())).startsWith("test: 2\n");
+        assertThat(second.headers().firstValue("ETag")).isNotEqualTo(first.headers().firstValue("ETag"));
+    }
+
+    @Test
+    public void streamingTest() throws Exception {
+        String body = "test: 42\n".repeat(200);
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of(body)).start();
+
+        HttpResponse<String> streamed = client.send(request("/"), BodyHandlers.ofString());
+        assertThat(streamed.headers().firstValue("Content-Length")).isEmpty();
+        assertThat(streamed.headers().firstValue("ETag")).isEmpty();
+        assertThat(streamed.body()).isEqualTo(body);
+
+        HttpRequest gzipRequest = HttpRequest.newBuilder(request("/"), (name, value) -> true).header("Accept-Encoding", "gzip").build();
+        HttpResponse<byte[]> buffered = client.send(gzipRequest, BodyHandlers.ofByteArray());
+        assertThat(buffered.headers().firstValue("Content-Length")).hasValue(String.valueOf(buffered.body().length));
+        assertThat(buffered.headers().firstValue("ETag")).isPresent();
+        assertThat(gunzip(buffered.body())).isEqualTo(body);
+    }
+
+    @Test
+    public void queryParametersTest() throws Exception {
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of("test: 42"))
+            .route("/query", SimpleHttpServer.TEXT_PLAIN, parameters -> ResponseWriter.of(new TreeMap<>(parameters).toString()))
+            .start();
+
+        assertThat(client.send(request("/query"), BodyHandlers.ofString()).body()).isEqualTo("{}");
+        assertThat(client.send(request("/query?a=1&b=x%20y&c=%C3%A9&b=z&d"), BodyHandlers.ofString()).body()).isEqualTo("{a=1, b=z, c=é, d=}");
+    }
+
+    @Test
+    public void pathPlaceholderTest() throws Exception {
+        new SimpleHttpServer(httpServer, parameters -> ResponseWriter.of("root: " + parameters))
+            .route("/components/{name}", SimpleHttpServer.TEXT_PLAIN, parameters -> ResponseWriter.of(new TreeMap<>(parameters).toString()))
+            .start();
+
+        assertThat(client.send(request("/components/memory?keys=heap"), BodyHandlers.ofString()).body()).isEqualTo("{keys=heap, name=memory}");
+        assertThat(client.send(request("/?keys=heap"), BodyHandlers.ofString()).body()).isEqualTo("root: {keys=heap}");
+    }
+
+    @Test
+    public void badRequestTest() throws Exception {
+        new SimpleHttpServer(httpServer, parameters -> {
+            throw new IllegalArgumentException("Invalid depth: " + parameters.get("depth"));
+        }).start();
+
+        HttpRequest conditionalRequest = HttpRequest.newBuilder(request("/?depth=x"), (name, value) -> true).header("If-None-Match", "*").build();
+        HttpResponse<String> response = client.send(conditionalRequest, BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.headers().firstValue("ETag")).isEmpty();
+        assertThat(response.body()).isEqualTo("Invalid depth: x\n");
+    }
+
+    @Test
+    public void eventStreamTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of("test: 42"))
+            .eventStream("/events", () -> Map.of("static", PropertyValue.of("x"), "counter", PropertyValue.of((long) calls.incrementAndGet())), Duration.ofMillis(50))
+            .start();
+        HttpResponse<Stream<String>> response = client.send(request("/events"), BodyHandlers.ofLines());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("text/event-stream");
+        Iterator<String> lines = response.body().iterator();
+        assertThat(lines.next()).isEqualTo("event: snapshot");
+        String snapshot = lines.next();
+        assertThat(snapshot).startsWith("data: {\"counter\":").endsWith(",\"static\":\"x\"}");
+        assertThat(lines.next()).isEmpty();
+        assertThat(lines.next()).isEqualTo("event: diff");
+        String diff = lines.next();
+        assertThat(diff).matches("data: \\{\"counter\":\\d+}");
+        assertThat(diff).isNotEqualTo(snapshot.substring(0, snapshot.indexOf(',')) + "}");
+        response.body().close();
+    }
+
+    @Test
+    public void eventStreamErrorTest() throws Exception {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.INSTRUMENTATION);
+        AtomicInteger calls = new AtomicInteger();
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of("test: 42"))
+            .instrumentation(appInfo.getInstrumentation())
+            .eventStream("/events", () -> {
+                if (calls.incrementAndGet() == 2) {
+                    throw new IllegalStateException("test failure");
+                }
+                return Map.of("counter", PropertyValue.of((long) calls.get()));
+            }, Duration.ofMillis(50))
+            .start();
+        HttpResponse<Stream<String>> response = client.send(request("/events"), BodyHandlers.ofLines());
+
+        Iterator<String> lines = response.body().iterator();
+        assertThat(lines.next()).isEqualTo("event: snapshot");
+        assertThat(lines.next()).isEqualTo("data: {\"counter\":1}");
+        assertThat(lines.next()).isEmpty();
+        assertThat(lines.next()).isEqualTo("event: error");
+        assertThat(lines.next()).isEqualTo("data: {\"error\":\"java.lang.IllegalStateException: test failure\"}");
+        assertThat(lines.next()).isEmpty();
+        assertThat(lines.next()).isEqualTo("event: diff");
+        assertThat(lines.next()).isEqualTo("data: {\"counter\":3}");
+        response.body().close();
+        assertThat(appInfo.getValues()).containsEntry("instrumentation.events/events.errors.java.lang.IllegalStateException", PropertyValue.of(1L));
+    }
+
+    @Test
+    public void instrumentationTest() throws Exception {
+        AppInfo appInfo = new AppInfo(AppInfoComponent.INSTRUMENTATION);
+        new SimpleHttpServer(httpServer, () -> ResponseWriter.of("test: 42"))
+            .instrumentation(appInfo.getInstrumentation())
+            .start();
+        HttpResponse<String> response = client.send(request("/"), BodyHandlers.ofString());
+
+        assertThat(response.headers().firstValue("Server-Timing")).hasValueSatisfying(value -> assertThat(value).matches("collect;dur=\\d+\\.\\d+"));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!appInfo.getValues().containsKey("instrumentation.http/.count") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(appInfo.getValues()).containsEntry("instrumentation.http/.count", PropertyValue.of(1L));
+    }
+
+    private HttpRequest request(String path, String accept) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + httpServer.getAddress().getPort() + path)).header("Accept", accept).build();
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + httpServer.getAddress().getPort() + path)).build();
+    }
+
+    /**
+     * Waits until all the requests arrived and are waiting: one of them for the latch, the rest of them for the coalesced response.
+     */
+    private static void awaitWaiting(List<Thread> handlerThreads, int requests) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!(handlerThreads.size() == requests && handlerThreads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING))) {
+            assertThat(System.nanoTime()).as("requests waiting before the deadline").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), UTF_8);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.develotters.appinfo.profiler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.develotters.appinfo.PropertyValue;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class ContentionProfilerTest {
+    private final Object monitor = new Object();
+
+    @Test
+    public void profileTest() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            threads.add(Thread.ofPlatform().name("contended-" + i).daemon().start(this::holdMonitor));
+        }
+
+        try {
+            Map<String, PropertyValue> values = new ContentionProfiler().profile(Duration.ofMillis(300), Duration.ofMillis(5));
+            assertThat(values.get("contention.lock.0.name").asString()).startsWith(Object.class.getName() + "@");
+            assertThat(values.get("contention.lock.0.owner").asString()).startsWith("contended-");
+            assertThat(values.get("contention.lock.0.waitingThreads").asString()).contains("contended-");
+            assertThat(values.get("contention.thread.0.name").asString()).startsWith("contended-");
+            assertThat(values.get("contention.thread.0.blockedCount")).isInstanceOfSatisfying(PropertyValue.LongValue.class,
+                value -> assertThat(value.value()).isPositive());
+        }
+        finally {
+            for (Thread thread : threads) {
+                thread.interrupt();
+                thread.join();
+            }
+        }
+    }
+
+    @Test
+    public void invalidArgumentsTest() {
+        ContentionProfiler profiler = new ContentionProfiler();
+        assertThatThrownBy(() -> profiler.profile(Duration.ofMinutes(2), Duration.ofMillis(10))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> profiler.profile(Duration.ofSeconds(1), Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void holdMonitor() {
+        while (!Thread.currentThread().isInterrupted()) {
+            synchronized (monitor) {
+                try {
+                    Thread.sleep(10);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
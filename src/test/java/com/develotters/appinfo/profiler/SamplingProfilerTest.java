@@ -0,0 +1,87 @@
+package com.develotters.appinfo.profiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Jonatan Ivanov
+ */
+public class SamplingProfilerTest {
+
+    @Test
+    public void stackTrieTest() throws IOException {
+        StackTrie stackTrie = new StackTrie();
+        stackTrie.add(stack("c", "b", "a"));
+        stackTrie.add(stack("c", "b", "a"));
+        stackTrie.add(stack("d", "b", "a"));
+        stackTrie.add(stack("b", "a"));
+        stackTrie.add(stack("e"));
+
+        assertThat(stackTrie.getSampleCount()).isEqualTo(5);
+        assertThat(stackTrie.getFrameCount()).isEqualTo(5);
+        assertThat(collapsed(stackTrie)).isEqualTo("""
+            Test.a;Test.b 1
+            Test.a;Test.b;Test.c 2
+            Test.a;Test.b;Test.d 1
+            Test.e 1
+            """);
+    }
+
+    @Test
+    public void profileTest() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread busyThread = Thread.ofPlatform().daemon().start(() -> {
+            while (running.get()) {
+                Thread.onSpinWait();
+            }
+        });
+
+        try {
+            StackTrie stackTrie = new SamplingProfiler().profile(Duration.ofMillis(200), Duration.ofMillis(10), SamplingProfiler.Mode.CPU);
+            assertThat(stackTrie.getSampleCount()).isPositive();
+            assertThat(collapsed(stackTrie)).contains(SamplingProfilerTest.class.getName() + ".lambda$profileTest$");
+        }
+        finally {
+            running.set(false);
+            busyThread.join();
+        }
+    }
+
+    @Test
+    public void invalidArgumentsTest() {
+        SamplingProfiler profiler = new SamplingProfiler();
+        assertThatThrownBy(() -> profiler.profile(Duration.ofMinutes(2), Duration.ofMillis(10), SamplingProfiler.Mode.CPU))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> profiler.profile(Duration.ofSeconds(1), Duration.ZERO, SamplingProfiler.Mode.WALL))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> profiler.profile(Duration.ofSeconds(1), Duration.ofMillis(1), SamplingProfiler.Mode.CPU))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(SamplingProfiler.Mode.of("wall")).isEqualTo(SamplingProfiler.Mode.WALL);
+    }
+
+    /**
+     * @param methods the top of the stack first
+     */
+    private static StackTraceElement[] stack(String... methods) {
+        StackTraceElement[] stackTrace = new StackTraceElement[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            stackTrace[i] = new StackTraceElement("Test", methods[i], "Test.java", i + 1);
+        }
+
+        return stackTrace;
+    }
+
+    private static String collapsed(StackTrie stackTrie) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stackTrie.writeCollapsed(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}